@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coarse clock whose millisecond instant is refreshed by a single background ticker at a fixed resolution.
+ * <p>
+ * Reading the time ({@link #instant()}, {@link #millis()}, {@link #now()}) is a volatile load and does not allocate.
+ * The current {@link ZonedDateTime} is cached for each zone obtained through {@link #withZone(ZoneId)}: all these
+ * clocks share the same ticker, which refreshes them on each tick.
+ * <p>
+ * {@link #close()} stops the ticker, for this clock and all its zoned copies. Closed clocks keep working by reading
+ * the source clock directly.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class CachedClock extends Clock implements AutoCloseable {
+
+    private final Ticker ticker;
+    private final ZoneId zone;
+    private volatile ZonedDateTime now;
+
+    private CachedClock(Ticker ticker, ZoneId zone) {
+        this.ticker = ticker;
+        this.zone = zone;
+    }
+
+    public static CachedClock start(Duration resolution) {
+        return start(Clock.systemDefaultZone(), resolution);
+    }
+
+    public static CachedClock start(Clock source, Duration resolution) {
+        long nanos = resolution.toNanos();
+        if (nanos <= 0) throw new IllegalArgumentException("Resolution must be positive: " + resolution);
+        Ticker ticker = new Ticker(source, nanos);
+        CachedClock clock = ticker.clock(source.getZone());
+        ticker.start();
+        return clock;
+    }
+
+    public Duration getResolution() {
+        return Duration.ofNanos(ticker.resolution);
+    }
+
+    public boolean isClosed() {
+        return ticker.closed;
+    }
+
+    /**
+     * @return The cached current date and time in the zone of this clock
+     */
+    public ZonedDateTime now() {
+        ZonedDateTime dt = now;
+        return dt != null ? dt : ZonedDateTime.ofInstant(instant(), zone);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public CachedClock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : ticker.clock(zone);
+    }
+
+    @Override
+    public Instant instant() {
+        Instant instant = ticker.instant;
+        return instant != null ? instant : Instant.ofEpochMilli(ticker.source.millis());
+    }
+
+    @Override
+    public long millis() {
+        Instant instant = ticker.instant;
+        return instant != null ? instant.toEpochMilli() : ticker.source.millis();
+    }
+
+    @Override
+    public void close() {
+        ticker.close();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CachedClock)) return false;
+        CachedClock that = (CachedClock) o;
+        return ticker == that.ticker && zone.equals(that.zone);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(ticker) + zone.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "CachedClock[" + zone + "," + getResolution() + "]";
+    }
+
+    private static final class Ticker implements Runnable {
+
+        final Clock source;
+        final long resolution;
+        final ConcurrentMap<ZoneId, CachedClock> clocks = new ConcurrentHashMap<>();
+        final ScheduledExecutorService executor;
+        volatile Instant instant;
+        volatile boolean closed;
+
+        Ticker(Clock source, long resolution) {
+            this.source = source;
+            this.resolution = resolution;
+            this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "jsr310-clock-ticker");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.instant = Instant.ofEpochMilli(source.millis());
+        }
+
+        void start() {
+            executor.scheduleAtFixedRate(this, resolution, resolution, TimeUnit.NANOSECONDS);
+        }
+
+        CachedClock clock(ZoneId zone) {
+            CachedClock clock = clocks.get(zone);
+            if (clock == null) {
+                CachedClock created = new CachedClock(this, zone);
+                clock = clocks.putIfAbsent(zone, created);
+                if (clock == null) {
+                    clock = created;
+                    refresh(clock, instant);
+                }
+            }
+            return clock;
+        }
+
+        @Override
+        public void run() {
+            if (closed) return;
+            Instant instant = Instant.ofEpochMilli(source.millis());
+            for (CachedClock clock : clocks.values()) {
+                refresh(clock, instant);
+            }
+            this.instant = instant;
+        }
+
+        void refresh(CachedClock clock, Instant instant) {
+            clock.now = instant == null || closed ? null : ZonedDateTime.ofInstant(instant, clock.zone);
+            // close() may have cleared the clocks between the check and the write: clear again so nothing stays frozen
+            if (closed) clock.now = null;
+        }
+
+        void close() {
+            if (closed) return;
+            closed = true;
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            instant = null;
+            for (CachedClock clock : clocks.values()) {
+                clock.now = null;
+            }
+        }
+    }
+
+}
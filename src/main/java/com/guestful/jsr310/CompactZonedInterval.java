@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+
+/**
+ * Memory-compact half-open interval {@code [start, end)} storing only the epoch millis of its
+ * bounds and its zone. The {@link ZonedDateTime} views returned by {@link #getStart()} and
+ * {@link #getEnd()} are built lazily on first access.
+ * <p>
+ * An instance takes 40 bytes on a 64-bit JVM with compressed oops (the zone is shared) whereas a
+ * {@link ZonedInterval} also retains two {@link ZonedDateTime} graphs of 96 bytes each.
+ * Sub-millisecond precision of the original bounds is not kept.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class CompactZonedInterval implements ReadableZonedInterval, Serializable {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = 3461298733960270129L;
+
+    private final long startMillis;
+    private final long endMillis;
+    private final ZoneId zoneId;
+    private transient ZonedDateTime start;
+    private transient ZonedDateTime end;
+
+    private CompactZonedInterval(long startMillis, long endMillis, ZoneId zoneId) {
+        this.zoneId = Objects.requireNonNull(zoneId, "zone cannot be null");
+        if (startMillis > endMillis) {
+            throw new IllegalStateException(Instant.ofEpochMilli(startMillis) + " > " + Instant.ofEpochMilli(endMillis));
+        }
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CompactZonedInterval that = (CompactZonedInterval) o;
+        return startMillis == that.startMillis && endMillis == that.endMillis && zoneId.equals(that.zoneId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(startMillis);
+        result = 31 * result + Long.hashCode(endMillis);
+        result = 31 * result + zoneId.hashCode();
+        return result;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zoneId;
+    }
+
+    @Override
+    public ZonedDateTime getStart() {
+        // benign race: ZonedDateTime is immutable and always rebuilt to the same value
+        ZonedDateTime dt = start;
+        if (dt == null) {
+            start = dt = ZonedDateTime.ofInstant(Instant.ofEpochMilli(startMillis), zoneId);
+        }
+        return dt;
+    }
+
+    @Override
+    public ZonedDateTime getEnd() {
+        ZonedDateTime dt = end;
+        if (dt == null) {
+            end = dt = ZonedDateTime.ofInstant(Instant.ofEpochMilli(endMillis), zoneId);
+        }
+        return dt;
+    }
+
+    @Override
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    @Override
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    @Override
+    public String toString() {
+        return getStart().toOffsetDateTime().toString() + "/" + getEnd().toOffsetDateTime().toString();
+    }
+
+    @Override
+    public CompactZonedInterval overlap(ReadableZonedInterval zonedInterval) {
+        if (!overlaps(zonedInterval)) return null;
+        long start = Math.max(startMillis, zonedInterval.getStartMillis());
+        long end = Math.min(endMillis, zonedInterval.getEndMillis());
+        return new CompactZonedInterval(start, end, zoneId);
+    }
+
+    @Override
+    public boolean overlaps(ReadableZonedInterval zonedInterval) {
+        return startMillis < zonedInterval.getEndMillis() && zonedInterval.getStartMillis() < endMillis;
+    }
+
+    @Override
+    public CompactZonedInterval gap(ReadableZonedInterval zonedInterval) {
+        long otherStart = zonedInterval.getStartMillis();
+        long otherEnd = zonedInterval.getEndMillis();
+        if (startMillis > otherEnd) {
+            return new CompactZonedInterval(otherEnd, startMillis, zoneId);
+        } else if (otherStart > endMillis) {
+            return new CompactZonedInterval(endMillis, otherStart, zoneId);
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean contains(long millisInstant) {
+        return millisInstant >= startMillis && millisInstant < endMillis;
+    }
+
+    public CompactZonedInterval withZone(ZoneId zone) {
+        if (this.zoneId.equals(zone)) return this;
+        return new CompactZonedInterval(startMillis, endMillis, zone);
+    }
+
+    public ZonedInterval toZonedInterval() {
+        return ZonedInterval.of(startMillis, endMillis, zoneId);
+    }
+
+    public static CompactZonedInterval of(long start, long end, ZoneId zoneId) {
+        return new CompactZonedInterval(start, end, zoneId);
+    }
+
+    public static CompactZonedInterval of(Instant start, Instant end, ZoneId zoneId) {
+        return new CompactZonedInterval(start.toEpochMilli(), end.toEpochMilli(), zoneId);
+    }
+
+    public static CompactZonedInterval of(ZonedDateTime start, ZonedDateTime end) {
+        return new CompactZonedInterval(start.toInstant().toEpochMilli(), end.toInstant().toEpochMilli(), start.getZone());
+    }
+
+    public static CompactZonedInterval of(ReadableZonedInterval zonedInterval) {
+        if (zonedInterval instanceof CompactZonedInterval) return (CompactZonedInterval) zonedInterval;
+        return new CompactZonedInterval(zonedInterval.getStartMillis(), zonedInterval.getEndMillis(), zonedInterval.getZone());
+    }
+
+}
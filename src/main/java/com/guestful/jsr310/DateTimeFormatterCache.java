@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, thread-safe cache of {@link DateTimeFormatter}s keyed by pattern and locale,
+ * so that patterns are parsed once instead of on every {@link DateTimeFormatter#ofPattern(String, Locale)} call.
+ * <p>
+ * Lookups do not lock nor allocate on a hit. When the cache is full, entries are evicted with a CLOCK (second chance)
+ * policy: the entries sit in a ring swept by a persistent hand, each hit marks its entry as referenced, and the hand
+ * clears the marks it meets until it reaches an entry not used since its last pass, which is replaced. Patterns in
+ * use are therefore kept, while one-off patterns (i.e. built from user input) are the ones evicted. Insertions and
+ * evictions synchronize on the cache.
+ * <p>
+ * {@link Jsr310Extensions#format(java.time.ZonedDateTime, String)} and its variants go through {@link #getDefault()}.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public class DateTimeFormatterCache {
+
+    public static final int DEFAULT_MAX_SIZE = 512;
+
+    private static final DateTimeFormatterCache DEFAULT = new DateTimeFormatterCache(DEFAULT_MAX_SIZE);
+
+    private final ConcurrentMap<Locale, ConcurrentMap<String, Entry>> formatters = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    // guarded by this
+    private final Entry[] ring;
+    private int hand;
+    private volatile int size;
+
+    public DateTimeFormatterCache(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Invalid max size: " + maxSize);
+        this.ring = new Entry[maxSize];
+    }
+
+    /**
+     * @return the formatter for the pattern in the default {@link Locale.Category#FORMAT} locale
+     */
+    public DateTimeFormatter get(String pattern) {
+        return get(pattern, Locale.getDefault(Locale.Category.FORMAT));
+    }
+
+    public DateTimeFormatter get(String pattern, Locale locale) {
+        ConcurrentMap<String, Entry> byPattern = formatters.get(locale);
+        Entry entry = byPattern == null ? null : byPattern.get(pattern);
+        if (entry != null) {
+            // only write when needed, to keep the cache line of hot entries shared between cores
+            if (!entry.referenced) entry.referenced = true;
+            hits.increment();
+            return entry.formatter;
+        }
+        misses.increment();
+        // parse outside of the lock: racing threads build equal formatters, first one wins
+        return insert(pattern, locale, DateTimeFormatter.ofPattern(pattern, locale));
+    }
+
+    /**
+     * Parses and caches the given patterns ahead of time for each of the given locales
+     * (or the default format locale if none is given).
+     */
+    public void warmUp(Iterable<String> patterns, Locale... locales) {
+        for (String pattern : patterns) {
+            if (locales.length == 0) get(pattern);
+            for (Locale locale : locales) get(pattern, locale);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getMaxSize() {
+        return ring.length;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized void clear() {
+        formatters.clear();
+        Arrays.fill(ring, null);
+        hand = 0;
+        size = 0;
+    }
+
+    private synchronized DateTimeFormatter insert(String pattern, Locale locale, DateTimeFormatter formatter) {
+        ConcurrentMap<String, Entry> byPattern = formatters.computeIfAbsent(locale, l -> new ConcurrentHashMap<>());
+        Entry existing = byPattern.get(pattern);
+        if (existing != null) return existing.formatter;
+        Entry entry = new Entry(pattern, locale, formatter);
+        int slot = size < ring.length ? size++ : evict();
+        ring[slot] = entry;
+        byPattern.put(pattern, entry);
+        return formatter;
+    }
+
+    /**
+     * @return the slot of the evicted entry. Terminates within two turns of the hand: the first one clears all marks.
+     */
+    private int evict() {
+        while (true) {
+            int slot = hand;
+            Entry entry = ring[slot];
+            hand = (slot + 1) % ring.length;
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                ConcurrentMap<String, Entry> byPattern = formatters.get(entry.locale);
+                byPattern.remove(entry.pattern);
+                // safe under the lock: insertions into a locale map also hold it
+                if (byPattern.isEmpty()) formatters.remove(entry.locale, byPattern);
+                evictions.increment();
+                return slot;
+            }
+        }
+    }
+
+    public static DateTimeFormatterCache getDefault() {
+        return DEFAULT;
+    }
+
+    private static final class Entry {
+
+        final String pattern;
+        final Locale locale;
+        final DateTimeFormatter formatter;
+        volatile boolean referenced;
+
+        Entry(String pattern, Locale locale, DateTimeFormatter formatter) {
+            this.pattern = pattern;
+            this.locale = locale;
+            this.formatter = formatter;
+        }
+    }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.DayOfWeek;
+import java.util.Collection;
+
+/**
+ * Immutable set of {@link DayOfWeek}s backed by a bitmask (bit 0 for Monday).
+ * <p>
+ * All the 128 possible sets are precomputed, so factories never allocate, {@link #contains(DayOfWeek)}
+ * is a bit test and set algebra is a bitwise operation.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class DayOfWeekSet extends EnumMaskSet<DayOfWeek, DayOfWeekSet> {
+
+    private static final DayOfWeek[] DAYS = DayOfWeek.values();
+    private static final DayOfWeekSet[] SETS = new DayOfWeekSet[full(DAYS) + 1];
+
+    static {
+        for (int mask = 0; mask < SETS.length; mask++) {
+            SETS[mask] = new DayOfWeekSet(mask);
+        }
+    }
+
+    public static final DayOfWeekSet EMPTY = SETS[0];
+    public static final DayOfWeekSet ALL = SETS[SETS.length - 1];
+
+    private DayOfWeekSet(int mask) {
+        super(DAYS, mask);
+    }
+
+    @Override
+    DayOfWeekSet set(int mask) {
+        return SETS[mask];
+    }
+
+    public static DayOfWeekSet ofMask(int mask) {
+        return SETS[checkMask(DAYS, mask)];
+    }
+
+    public static DayOfWeekSet of(DayOfWeek... days) {
+        return SETS[maskOf(days)];
+    }
+
+    public static DayOfWeekSet of(Collection<DayOfWeek> days) {
+        if (days instanceof DayOfWeekSet) return (DayOfWeekSet) days;
+        return SETS[maskOf(days)];
+    }
+
+    /**
+     * @return the days from {@code start} to {@code end} inclusive, wrapping around the week (i.e. SATURDAY to MONDAY)
+     */
+    public static DayOfWeekSet range(DayOfWeek start, DayOfWeek end) {
+        return SETS[rangeMask(DAYS, start, end)];
+    }
+
+}
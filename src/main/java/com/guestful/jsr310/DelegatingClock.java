@@ -21,45 +21,54 @@ import java.time.ZoneId;
 import java.util.concurrent.Callable;
 
 /**
+ * Clock delegating to another one, which can be overridden for the current thread with {@link #runWithClock}.
+ * <p>
+ * Overrides are scoped to the calling thread (they work the same on virtual threads) and can be nested.
+ * {@link #instant()} only reads a thread-local before delegating: there is no state shared between threads to contend on.
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
 public class DelegatingClock extends Clock {
 
-    private Clock delegate;
-    private ZoneId zoneId;
+    private final Clock delegate;
+    private final ZoneId zoneId;
+    private final ThreadLocal<Clock> override;
 
     public DelegatingClock(Clock delegate) {
         this.delegate = delegate;
+        this.zoneId = null;
+        this.override = new ThreadLocal<>();
     }
 
-    private DelegatingClock(Clock delegate, ZoneId zoneId) {
-        this.delegate = delegate;
+    private DelegatingClock(DelegatingClock parent, ZoneId zoneId) {
+        this.delegate = parent.delegate;
         this.zoneId = zoneId;
+        this.override = parent.override;
     }
 
     public <V> V runWithClock(Clock clock, Callable<V> c) throws Exception {
-        Clock old = delegate;
-        delegate = clock;
+        Clock old = override.get();
+        override.set(clock);
         try {
             return c.call();
         } finally {
-            delegate = old;
+            restore(old);
         }
     }
 
     public void runWithClock(Clock clock, Runnable r) {
-        Clock old = delegate;
-        delegate = clock;
+        Clock old = override.get();
+        override.set(clock);
         try {
             r.run();
         } finally {
-            delegate = old;
+            restore(old);
         }
     }
 
     @Override
     public ZoneId getZone() {
-        return zoneId == null ? delegate.getZone() : zoneId;
+        return zoneId == null ? current().getZone() : zoneId;
     }
 
     @Override
@@ -69,6 +78,21 @@ public class DelegatingClock extends Clock {
 
     @Override
     public Instant instant() {
-        return delegate.instant();
+        return current().instant();
+    }
+
+    @Override
+    public long millis() {
+        return current().millis();
+    }
+
+    private Clock current() {
+        Clock clock = override.get();
+        return clock == null ? delegate : clock;
+    }
+
+    private void restore(Clock old) {
+        if (old == null) override.remove();
+        else override.set(old);
     }
 }
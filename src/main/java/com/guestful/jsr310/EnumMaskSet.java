@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Base of the immutable enum sets backed by a bitmask (bit i for the constant of ordinal i), such as
+ * {@link DayOfWeekSet} and {@link MonthSet}.
+ * <p>
+ * Subclasses precompute one instance per possible mask and expose it through {@link #set(int)}, so that set
+ * algebra is a bitwise operation followed by a table lookup.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+abstract class EnumMaskSet<E extends Enum<E>, S extends EnumMaskSet<E, S>> extends AbstractSet<E> {
+
+    private final E[] universe;
+    private final int mask;
+
+    EnumMaskSet(E[] universe, int mask) {
+        this.universe = universe;
+        this.mask = mask;
+    }
+
+    /**
+     * @return the precomputed set of this type for the given mask
+     */
+    abstract S set(int mask);
+
+    public int getMask() {
+        return mask;
+    }
+
+    public boolean contains(E e) {
+        return (mask & bit(e)) != 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Enum && ((Enum<?>) o).getDeclaringClass() == universe[0].getDeclaringClass() && (mask & bit((Enum<?>) o)) != 0;
+    }
+
+    @Override
+    public int size() {
+        return Integer.bitCount(mask);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    public S union(S other) {
+        return set(mask | other.getMask());
+    }
+
+    public S intersect(S other) {
+        return set(mask & other.getMask());
+    }
+
+    public S minus(S other) {
+        return set(mask & ~other.getMask());
+    }
+
+    public S complement() {
+        return set(~mask & full(universe));
+    }
+
+    public S with(E e) {
+        return set(mask | bit(e));
+    }
+
+    public S without(E e) {
+        return set(mask & ~bit(e));
+    }
+
+    /**
+     * @return the first element of this set at or after the given one, wrapping around after the last constant, or null if this set is empty
+     */
+    public E next(E from) {
+        if (mask == 0) return null;
+        int n = universe.length, i = from.ordinal();
+        int rotated = ((mask >>> i) | (mask << (n - i))) & full(universe);
+        return universe[(i + Integer.numberOfTrailingZeros(rotated)) % n];
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            int remaining = mask;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public E next() {
+                if (remaining == 0) throw new NoSuchElementException();
+                int i = Integer.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return universe[i];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof EnumMaskSet && ((EnumMaskSet<?, ?>) o).universe == universe) return mask == ((EnumMaskSet<?, ?>) o).mask;
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    static int full(Enum<?>[] universe) {
+        return (1 << universe.length) - 1;
+    }
+
+    static int bit(Enum<?> e) {
+        return 1 << e.ordinal();
+    }
+
+    static int checkMask(Enum<?>[] universe, int mask) {
+        if ((mask & ~full(universe)) != 0) throw new IllegalArgumentException("Invalid mask: " + mask);
+        return mask;
+    }
+
+    static int maskOf(Enum<?>[] elements) {
+        int mask = 0;
+        for (Enum<?> e : elements) mask |= bit(e);
+        return mask;
+    }
+
+    static int maskOf(Iterable<? extends Enum<?>> elements) {
+        int mask = 0;
+        for (Enum<?> e : elements) mask |= bit(e);
+        return mask;
+    }
+
+    /**
+     * @return the mask of the constants from {@code start} to {@code end} inclusive, wrapping around after the last constant
+     */
+    static int rangeMask(Enum<?>[] universe, Enum<?> start, Enum<?> end) {
+        int s = start.ordinal(), e = end.ordinal();
+        int upToEnd = (2 << e) - 1;
+        int fromStart = full(universe) & ~((1 << s) - 1);
+        return s <= e ? upToEnd & fromStart : upToEnd | fromStart;
+    }
+
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Set of days (i.e. closures and holidays) stored as a paged bitmap keyed by epoch day.
+ * <p>
+ * Each page covers 4096 consecutive days (about 11 years) in 64 words and pages are only allocated
+ * when a day of their range is marked, so {@link #isMarked(long)} is an array access and a bit test,
+ * and {@link #nextUnmarked(long)} / {@link #nextMarked(long)} skip whole words at a time.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public class EpochDayCalendar {
+
+    /**
+     * Returned by {@link #nextMarked(long)} when no day is marked after the given one.
+     */
+    public static final long NONE = Long.MIN_VALUE;
+
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_DAYS = 1 << PAGE_SHIFT;
+    private static final int PAGE_WORDS = PAGE_DAYS >>> 6;
+
+    private long firstPage;
+    private long[][] pages = new long[0][];
+
+    public EpochDayCalendar() {
+    }
+
+    public EpochDayCalendar(EpochDayCalendar other) {
+        this.firstPage = other.firstPage;
+        this.pages = new long[other.pages.length][];
+        for (int i = 0; i < pages.length; i++) {
+            if (other.pages[i] != null) pages[i] = other.pages[i].clone();
+        }
+    }
+
+    public boolean isMarked(LocalDate date) {
+        return isMarked(date.toEpochDay());
+    }
+
+    public boolean isMarked(long epochDay) {
+        long[] page = page(epochDay);
+        return page != null && (page[word(epochDay)] & (1L << epochDay)) != 0;
+    }
+
+    public void mark(LocalDate date) {
+        mark(date.toEpochDay());
+    }
+
+    public void mark(long epochDay) {
+        pageForUpdate(epochDay)[word(epochDay)] |= 1L << epochDay;
+    }
+
+    public void clear(LocalDate date) {
+        clear(date.toEpochDay());
+    }
+
+    public void clear(long epochDay) {
+        long[] page = page(epochDay);
+        if (page != null) page[word(epochDay)] &= ~(1L << epochDay);
+    }
+
+    /**
+     * Marks the days from {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    public void mark(LocalDate from, LocalDate to) {
+        markRange(from.toEpochDay(), to.toEpochDay(), true);
+    }
+
+    public void markRange(long fromEpochDay, long toEpochDay) {
+        markRange(fromEpochDay, toEpochDay, true);
+    }
+
+    /**
+     * Clears the days from {@code from} (inclusive) to {@code to} (exclusive).
+     */
+    public void clear(LocalDate from, LocalDate to) {
+        markRange(from.toEpochDay(), to.toEpochDay(), false);
+    }
+
+    public void clearRange(long fromEpochDay, long toEpochDay) {
+        markRange(fromEpochDay, toEpochDay, false);
+    }
+
+    public void clear() {
+        pages = new long[0][];
+        firstPage = 0;
+    }
+
+    /**
+     * @return the first day at or after the given one which is not marked
+     */
+    public long nextUnmarked(long epochDay) {
+        long day = epochDay;
+        while (true) {
+            long[] page = page(day);
+            if (page == null) return day;
+            int w = word(day);
+            long word = ~page[w] & (-1L << day);
+            while (word == 0 && ++w < PAGE_WORDS) {
+                word = ~page[w];
+            }
+            long pageStart = (day >> PAGE_SHIFT) << PAGE_SHIFT;
+            if (word != 0) return pageStart + (w << 6) + Long.numberOfTrailingZeros(word);
+            day = pageStart + PAGE_DAYS;
+        }
+    }
+
+    public LocalDate nextUnmarked(LocalDate date) {
+        return LocalDate.ofEpochDay(nextUnmarked(date.toEpochDay()));
+    }
+
+    /**
+     * @return the first marked day at or after the given one, or {@link #NONE}
+     */
+    public long nextMarked(long epochDay) {
+        long p = Math.max(epochDay >> PAGE_SHIFT, firstPage);
+        long day = p == epochDay >> PAGE_SHIFT ? epochDay : p << PAGE_SHIFT;
+        for (; p < firstPage + pages.length; p++, day = p << PAGE_SHIFT) {
+            long[] page = pages[(int) (p - firstPage)];
+            if (page == null) continue;
+            int w = word(day);
+            long word = page[w] & (-1L << day);
+            while (word == 0 && ++w < PAGE_WORDS) {
+                word = page[w];
+            }
+            if (word != 0) return (p << PAGE_SHIFT) + (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the first marked day at or after the given one, or null
+     */
+    public LocalDate nextMarked(LocalDate date) {
+        long day = nextMarked(date.toEpochDay());
+        return day == NONE ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * @return the number of marked days
+     */
+    public long cardinality() {
+        long count = 0;
+        for (long[] page : pages) {
+            if (page != null) {
+                for (long word : page) count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return nextMarked(Long.MIN_VALUE) == NONE;
+    }
+
+    /**
+     * @return the marked epoch days, in ascending order
+     */
+    public LongStream markedDays() {
+        long first = nextMarked(Long.MIN_VALUE);
+        if (first == NONE) return LongStream.empty();
+        return LongStream.iterate(first, d -> nextMarked(d + 1)).limit(cardinality());
+    }
+
+    public Stream<LocalDate> markedDates() {
+        return markedDays().mapToObj(LocalDate::ofEpochDay);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EpochDayCalendar that = (EpochDayCalendar) o;
+        return Arrays.equals(markedDays().toArray(), that.markedDays().toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(markedDays().toArray());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (long d = nextMarked(Long.MIN_VALUE); d != NONE; ) {
+            long end = nextUnmarked(d);
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(LocalDate.ofEpochDay(d));
+            if (end - d > 1) sb.append("..").append(LocalDate.ofEpochDay(end - 1));
+            d = nextMarked(end);
+        }
+        return sb.append(']').toString();
+    }
+
+    private void markRange(long from, long to, boolean value) {
+        for (long day = from; day < to; ) {
+            long pageEnd = ((day >> PAGE_SHIFT) + 1) << PAGE_SHIFT;
+            long end = Math.min(to, pageEnd);
+            long[] page = value ? pageForUpdate(day) : page(day);
+            if (page != null) {
+                for (long d = day; d < end; ) {
+                    int w = word(d);
+                    long wordEnd = Math.min(end, ((d >> 6) + 1) << 6);
+                    int bits = (int) (wordEnd - d);
+                    long mask = (bits == 64 ? -1L : (1L << bits) - 1) << d;
+                    if (value) page[w] |= mask;
+                    else page[w] &= ~mask;
+                    d = wordEnd;
+                }
+            }
+            day = end;
+        }
+    }
+
+    private long[] page(long epochDay) {
+        long p = (epochDay >> PAGE_SHIFT) - firstPage;
+        return p >= 0 && p < pages.length ? pages[(int) p] : null;
+    }
+
+    private long[] pageForUpdate(long epochDay) {
+        long p = epochDay >> PAGE_SHIFT;
+        if (pages.length == 0) {
+            firstPage = p;
+            pages = new long[1][];
+        } else if (p < firstPage) {
+            long[][] grown = new long[(int) (firstPage + pages.length - p)][];
+            System.arraycopy(pages, 0, grown, (int) (firstPage - p), pages.length);
+            pages = grown;
+            firstPage = p;
+        } else if (p >= firstPage + pages.length) {
+            pages = Arrays.copyOf(pages, (int) (p - firstPage + 1));
+        }
+        int i = (int) (p - firstPage);
+        long[] page = pages[i];
+        return page != null ? page : (pages[i] = new long[PAGE_WORDS]);
+    }
+
+    private static int word(long epochDay) {
+        return (int) (epochDay & (PAGE_DAYS - 1)) >>> 6;
+    }
+
+}
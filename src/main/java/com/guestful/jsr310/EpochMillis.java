@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.DayOfWeek;
+
+import static java.time.temporal.ChronoField.HOUR_OF_DAY;
+import static java.time.temporal.ChronoField.MINUTE_OF_HOUR;
+
+/**
+ * Allocation-free counterparts of the date arithmetic of {@link Jsr310Extensions}, working on epoch millis
+ * and a {@link ZoneRegistry} zone index instead of {@link java.time.ZonedDateTime}s.
+ * <p>
+ * Each method returns the epoch millis of the {@link java.time.ZonedDateTime} its object-based counterpart
+ * would return, including across DST transitions: offsets are resolved with {@link ZoneOffsetResolver} and
+ * local times are resolved like the {@code with*} methods of {@link java.time.ZonedDateTime}, keeping the
+ * current offset when it is still valid.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class EpochMillis {
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private EpochMillis() {
+    }
+
+    /**
+     * @see Jsr310Extensions#atStartOfDay(java.time.ZonedDateTime)
+     */
+    public static long atStartOfDay(long epochMilli, int zone) {
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zone);
+        return resolver.startOfDay(resolver.getLocalEpochDay(epochMilli));
+    }
+
+    /**
+     * @see Jsr310Extensions#atStartOfWeek(java.time.ZonedDateTime)
+     */
+    public static long atStartOfWeek(long epochMilli, int zone) {
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zone);
+        long epochDay = resolver.getLocalEpochDay(epochMilli);
+        // 1970-01-01 is a Thursday
+        return resolver.startOfDay(epochDay - Math.floorMod(epochDay + 3, 7));
+    }
+
+    /**
+     * @see Jsr310Extensions#at(java.time.ZonedDateTime, int, int)
+     */
+    public static long at(long epochMilli, int zone, int hour, int minute) {
+        HOUR_OF_DAY.checkValidValue(hour);
+        MINUTE_OF_HOUR.checkValidValue(minute);
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zone);
+        long start = resolver.startOfDay(resolver.getLocalEpochDay(epochMilli));
+        long atHour = withLocal(resolver, start, setHour(resolver.toLocalMillis(start), hour));
+        return withLocal(resolver, atHour, setField(resolver.toLocalMillis(atHour), MILLIS_PER_HOUR, minute * MILLIS_PER_MINUTE));
+    }
+
+    /**
+     * @see Jsr310Extensions#roundDownMinutes(java.time.ZonedDateTime, int)
+     */
+    public static long roundDownMinutes(long epochMilli, int zone, int step) {
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zone);
+        long local = resolver.toLocalMillis(epochMilli);
+        int mins = minuteOfHour(local);
+        long time = withLocal(resolver, epochMilli, local - Math.floorMod(local, MILLIS_PER_MINUTE));
+        if (mins % step == 0) return time;
+        if (60 % step != 0) throw new IllegalArgumentException("Invalid step: " + step);
+        return withMinute(resolver, time, mins - (mins % step));
+    }
+
+    /**
+     * @see Jsr310Extensions#roundUpMinutes(java.time.ZonedDateTime, int)
+     */
+    public static long roundUpMinutes(long epochMilli, int zone, int step) {
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zone);
+        long local = resolver.toLocalMillis(epochMilli);
+        int mins = minuteOfHour(local);
+        long time = withLocal(resolver, epochMilli, local - Math.floorMod(local, MILLIS_PER_MINUTE));
+        if (mins % step == 0) return time;
+        if (60 % step != 0) throw new IllegalArgumentException("Invalid step: " + step);
+        mins = mins + step - (mins % step);
+        return mins < 60 ? withMinute(resolver, time, mins) : withMinute(resolver, time + MILLIS_PER_HOUR, mins - 60);
+    }
+
+    /**
+     * Finds the first instant at or after the given one falling on the given day of week, at the same local time.
+     *
+     * @see Jsr310Extensions#next(java.time.ZonedDateTime, DayOfWeek)
+     */
+    public static long next(long epochMilli, int zone, DayOfWeek day) {
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zone);
+        long local = resolver.toLocalMillis(epochMilli);
+        long epochDay = Math.floorDiv(local, MILLIS_PER_DAY);
+        int days = Math.floorMod(day.getValue() - 1 - (int) Math.floorMod(epochDay + 3, 7), 7);
+        return days == 0 ? epochMilli : withLocal(resolver, epochMilli, local + days * MILLIS_PER_DAY);
+    }
+
+    /**
+     * @return the ISO day of week of the instant in the zone, from 1 (Monday) to 7 (Sunday)
+     */
+    public static int getDayOfWeek(long epochMilli, int zone) {
+        return ZoneOffsetResolver.of(zone).getLocalDayOfWeek(epochMilli);
+    }
+
+    private static long withMinute(ZoneOffsetResolver resolver, long epochMilli, int minute) {
+        return withLocal(resolver, epochMilli, setField(resolver.toLocalMillis(epochMilli), MILLIS_PER_HOUR, minute * MILLIS_PER_MINUTE));
+    }
+
+    private static long setHour(long local, int hour) {
+        return setField(local, MILLIS_PER_DAY, hour * MILLIS_PER_HOUR + Math.floorMod(local, MILLIS_PER_HOUR));
+    }
+
+    /**
+     * Replaces the part of a local time below {@code unit} by {@code value}.
+     */
+    private static long setField(long local, long unit, long value) {
+        return local - Math.floorMod(local, unit) + value;
+    }
+
+    private static int minuteOfHour(long local) {
+        return (int) (Math.floorMod(local, MILLIS_PER_HOUR) / MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * Resolves a new local time, keeping the offset at the given instant if possible.
+     */
+    private static long withLocal(ZoneOffsetResolver resolver, long epochMilli, long local) {
+        return resolver.toEpochMilli(local, resolver.getOffsetSeconds(epochMilli));
+    }
+
+}
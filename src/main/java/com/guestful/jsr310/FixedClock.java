@@ -16,11 +16,19 @@
 package com.guestful.jsr310;
 
 import java.time.Clock;
+import java.time.DateTimeException;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
 /**
+ * A clock whose date and time fields can be pinned individually. Fields left unset follow the system clock.
+ * <p>
+ * When all fields are set the instant is resolved once, when a setter or the zone changes, so {@link #instant()}
+ * does not allocate. The resolved instant is published through a volatile field: a reader that sees it also sees
+ * the field values it was computed from.
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
 public class FixedClock extends Clock {
@@ -32,6 +40,7 @@ public class FixedClock extends Clock {
     private Integer hour;
     private Integer min;
     private Integer sec;
+    private volatile Instant resolved;
 
     public FixedClock() {
     }
@@ -44,38 +53,47 @@ public class FixedClock extends Clock {
         this.hour = o.hour;
         this.min = o.min;
         this.sec = o.sec;
+        this.resolved = o.resolved;
     }
 
     public void setYear(int year) {
         this.year = year;
+        resolve();
     }
 
     public void setMonth(int month) {
         this.month = month;
+        resolve();
     }
 
     public void setDay(int day) {
         this.day = day;
+        resolve();
     }
 
     public void setHour(int hour) {
         this.hour = hour;
+        resolve();
     }
 
     public void setMin(int min) {
         this.min = min;
+        resolve();
     }
 
     public void setSec(int sec) {
         this.sec = sec;
+        resolve();
     }
 
     public void setZone(ZoneId zone) {
         this.zone = zone;
+        resolve();
     }
 
     public void setZoneId(String zone) {
-        this.zone = ZoneId.of(zone);
+        this.zone = ZoneRegistry.of(zone);
+        resolve();
     }
 
     @Override
@@ -92,6 +110,8 @@ public class FixedClock extends Clock {
 
     @Override
     public Instant instant() {
+        Instant instant = resolved;
+        if (instant != null) return instant;
         ZonedDateTime dt = ZonedDateTime.now(zone);
         if (year != null) dt = dt.withYear(year);
         if (month != null) dt = dt.withMonth(month);
@@ -102,4 +122,17 @@ public class FixedClock extends Clock {
         return dt.toInstant();
     }
 
+    private void resolve() {
+        Instant instant = null;
+        if (year != null && month != null && day != null && hour != null && min != null && sec != null) {
+            try {
+                instant = ZonedDateTime.of(LocalDateTime.of(year, month, day, hour, min, sec), zone).toInstant();
+            } catch (DateTimeException ignored) {
+                // fields may be transiently invalid while several setters are called (i.e. Jan 31 -> Feb 15):
+                // fall back to resolving on each call, which reports the error if it is still invalid then
+            }
+        }
+        resolved = instant;
+    }
+
 }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Single pass parser for the formats accepted by {@link Jsr310Extensions#parse(java.time.Clock, String)}:
+ * {@code yyyy-MM}, {@code yyyy-MM-dd}, {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]} with an optional
+ * {@code Z} or {@code +HH:MM[:SS]} offset.
+ * <p>
+ * Fields are read directly from the characters without regular expressions nor substrings.
+ * Returns null when the input is not in one of these shapes or holds invalid values, so that the
+ * caller can fall back to the {@code java.time} parsers and report the same errors as before.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+final class IsoDateTimeParser {
+
+    private IsoDateTimeParser() {
+    }
+
+    static ZonedDateTime parse(CharSequence s, int from, int to, ZoneId zone) {
+        try {
+            return parseOrNull(s, from, to, zone);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static ZonedDateTime parseOrNull(CharSequence s, int from, int to, ZoneId zone) {
+        int len = to - from;
+        // yyyy-MM
+        if (len < 7 || s.charAt(from + 4) != '-') return null;
+        int year = digits(s, from, 4);
+        int month = digits(s, from + 5, 2);
+        if (year < 0 || month < 0) return null;
+        if (len == 7) return LocalDate.of(year, month, 1).atStartOfDay(zone);
+        // yyyy-MM-dd
+        if (len < 10 || s.charAt(from + 7) != '-') return null;
+        int day = digits(s, from + 8, 2);
+        if (day < 0) return null;
+        if (len == 10) return LocalDate.of(year, month, day).atStartOfDay(zone);
+        // THH:mm
+        if (len < 16 || s.charAt(from + 10) != 'T' || s.charAt(from + 13) != ':') return null;
+        int hour = digits(s, from + 11, 2);
+        int minute = digits(s, from + 14, 2);
+        if (hour < 0 || minute < 0) return null;
+        int second = 0, nano = 0;
+        int i = from + 16;
+        // :ss
+        if (i < to && s.charAt(i) == ':') {
+            if (i + 3 > to) return null;
+            second = digits(s, i + 1, 2);
+            if (second < 0) return null;
+            i += 3;
+            // .fraction (1 to 9 digits)
+            if (i < to && s.charAt(i) == '.') {
+                int start = ++i;
+                for (; i < to && isDigit(s.charAt(i)); i++) {
+                    if (i - start == 9) return null;
+                    nano = nano * 10 + (s.charAt(i) - '0');
+                }
+                if (i == start) return null;
+                for (int n = i - start; n < 9; n++) nano *= 10;
+            }
+        }
+        LocalDateTime ldt = LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        if (i == to) return ldt.atZone(zone);
+        // Z or +HH:MM[:SS]
+        ZoneOffset offset;
+        char c = s.charAt(i);
+        if (c == 'Z' && i + 1 == to) {
+            offset = ZoneOffset.UTC;
+        } else if ((c == '+' || c == '-') && (i + 6 == to || i + 9 == to) && s.charAt(i + 3) == ':') {
+            int oh = digits(s, i + 1, 2);
+            int om = digits(s, i + 4, 2);
+            int os = 0;
+            if (i + 9 == to) {
+                if (s.charAt(i + 6) != ':') return null;
+                os = digits(s, i + 7, 2);
+            }
+            if (oh < 0 || om < 0 || os < 0) return null;
+            int sign = c == '-' ? -1 : 1;
+            offset = ZoneOffset.ofHoursMinutesSeconds(sign * oh, sign * om, sign * os);
+        } else {
+            return null;
+        }
+        return ZonedDateTime.ofInstant(ldt, offset, zone);
+    }
+
+    /**
+     * @return the value of {@code count} ASCII digits, or -1 if one of the characters is not a digit
+     */
+    private static int digits(CharSequence s, int from, int count) {
+        int value = 0;
+        for (int i = from, end = from + count; i < end; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+}
@@ -16,13 +16,19 @@
 package com.guestful.jsr310;
 
 import java.time.*;
-import java.time.format.DateTimeFormatter;
 import java.time.temporal.Temporal;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.regex.Pattern;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
@@ -34,11 +40,12 @@ public class Jsr310Extensions {
     private static final Pattern PATTERN_MONTH = Pattern.compile("\\d\\d\\d\\d-\\d\\d");
 
     public static ZonedDateTime getNow(Clock c) {
+        if (c instanceof CachedClock) return ((CachedClock) c).now();
         return ZonedDateTime.now(c);
     }
 
     public static Clock withZone(Clock c, String zoneId) {
-        return c.withZone(ZoneId.of(zoneId));
+        return c.withZone(ZoneRegistry.of(zoneId));
     }
 
     public static ZonedDateTime at(ZonedDateTime dt, int h) {
@@ -54,11 +61,11 @@ public class Jsr310Extensions {
     }
 
     public static ZonedDateTime inParis(ZonedDateTime dt) {
-        return dt.withZoneSameLocal(ZoneId.of("Europe/Paris"));
+        return dt.withZoneSameLocal(ZoneRegistry.of("Europe/Paris"));
     }
 
     public static ZonedDateTime inMontreal(ZonedDateTime dt) {
-        return dt.withZoneSameLocal(ZoneId.of("America/Montreal"));
+        return dt.withZoneSameLocal(ZoneRegistry.of("America/Montreal"));
     }
 
     public static Duration negative(Duration d) {
@@ -132,13 +139,27 @@ public class Jsr310Extensions {
         List<Month> months = new ArrayList<>();
         int max = end.getValue() - 1;
         int i = start.getValue() - 1;
-        if (i > max) max += 7;
+        if (i > max) max += 12;
         for (; i <= max; i++) {
             months.add(Month.of((i % 12) + 1));
         }
         return months;
     }
 
+    /**
+     * Same days as {@link #to(DayOfWeek, DayOfWeek)}, as a precomputed immutable set.
+     */
+    public static DayOfWeekSet toSet(DayOfWeek start, DayOfWeek end) {
+        return DayOfWeekSet.range(start, end);
+    }
+
+    /**
+     * Same months as {@link #to(Month, Month)}, as a precomputed immutable set.
+     */
+    public static MonthSet toSet(Month start, Month end) {
+        return MonthSet.range(start, end);
+    }
+
     public static String getShortName(DayOfWeek d) {
         return d.name().substring(0, 3);
     }
@@ -156,11 +177,11 @@ public class Jsr310Extensions {
     }
 
     public static String format(ZonedDateTime dt, String pattern) {
-        return dt.format(DateTimeFormatter.ofPattern(pattern));
+        return dt.format(DateTimeFormatterCache.getDefault().get(pattern));
     }
 
     public static String format(ZonedDateTime dt, String pattern, Locale locale) {
-        return dt.format(DateTimeFormatter.ofPattern(pattern, locale));
+        return dt.format(DateTimeFormatterCache.getDefault().get(pattern, locale));
     }
 
     public static Date toDate(ZonedDateTime dt) {
@@ -176,10 +197,22 @@ public class Jsr310Extensions {
     }
 
     public static ZonedDateTime parse(Clock c, String str) {
-        if (PATTERN_DATETIME.matcher(str).matches()) return LocalDateTime.parse(str).atZone(c.getZone());
-        if (PATTERN_DATE.matcher(str).matches()) return LocalDate.parse(str).atStartOfDay(c.getZone());
-        if (PATTERN_MONTH.matcher(str).matches()) return LocalDate.parse(str + "-01").atStartOfDay(c.getZone());
-        return OffsetDateTime.parse(str).atZoneSameInstant(c.getZone());
+        return parse(c, str, 0, str.length());
+    }
+
+    /**
+     * Parses the characters between {@code from} (inclusive) and {@code to} (exclusive),
+     * in one of the formats supported by {@link #parse(Clock, String)}, without creating a substring.
+     */
+    public static ZonedDateTime parse(Clock c, CharSequence str, int from, int to) {
+        ZonedDateTime dt = IsoDateTimeParser.parse(str, from, to, c.getZone());
+        if (dt != null) return dt;
+        // unusual or invalid input: let java.time report it
+        String s = str.subSequence(from, to).toString();
+        if (PATTERN_DATETIME.matcher(s).matches()) return LocalDateTime.parse(s).atZone(c.getZone());
+        if (PATTERN_DATE.matcher(s).matches()) return LocalDate.parse(s).atStartOfDay(c.getZone());
+        if (PATTERN_MONTH.matcher(s).matches()) return LocalDate.parse(s + "-01").atStartOfDay(c.getZone());
+        return OffsetDateTime.parse(s).atZoneSameInstant(c.getZone());
     }
 
     public static ZonedDateTime getNextMonday(ZonedDateTime d) {
@@ -210,11 +243,12 @@ public class Jsr310Extensions {
         return next(d, DayOfWeek.SUNDAY);
     }
 
+    /**
+     * @return the given date-time if it falls on the given day of week, otherwise the same local time on the next such day
+     */
     public static ZonedDateTime next(ZonedDateTime d, DayOfWeek day) {
-        while (d.getDayOfWeek() != day) {
-            d = d.plusDays(1);
-        }
-        return d;
+        int days = (day.getValue() - d.getDayOfWeek().getValue() + 7) % 7;
+        return days == 0 ? d : d.plusDays(days);
     }
 
     public static ZonedDateTime january(Number day, int year) {
@@ -290,12 +324,75 @@ public class Jsr310Extensions {
         return p.isNegative() ? ZonedInterval.of(from.plus(p), from) : ZonedInterval.of(from, from.plus(p));
     }
 
+    /**
+     * Finds all the free gaps of at least {@code minGap} inside a window, given unsorted busy intervals.
+     * <p>
+     * Busy intervals are sorted and scanned once (see {@link ZonedIntervalSet}) instead of comparing each pair with
+     * {@link ZonedInterval#gap(ReadableZonedInterval)}. Gaps are half-open, in the zone of the window.
+     */
+    public static List<ZonedInterval> gaps(Collection<? extends ReadableZonedInterval> busy, ReadableZonedInterval window, Duration minGap) {
+        ZoneId zone = window.getZone();
+        return ZonedIntervalSet.of(zone, window)
+            .subtract(ZonedIntervalSet.of(zone, busy))
+            .withMinDuration(minGap)
+            .toList();
+    }
+
+    /**
+     * Same as {@link #gaps(Collection, ReadableZonedInterval, Duration)} for each resource (i.e. a table)
+     * returned by the {@code resource} function, in the order they are first seen.
+     */
+    public static <T extends ReadableZonedInterval, K> Map<K, List<ZonedInterval>> gaps(Collection<? extends T> busy, Function<? super T, ? extends K> resource, ReadableZonedInterval window, Duration minGap) {
+        Map<K, List<T>> byResource = new LinkedHashMap<>();
+        for (T interval : busy) {
+            byResource.computeIfAbsent(resource.apply(interval), k -> new ArrayList<>()).add(interval);
+        }
+        Map<K, List<ZonedInterval>> gaps = new LinkedHashMap<>(byResource.size() * 2);
+        byResource.forEach((k, intervals) -> gaps.put(k, gaps(intervals, window, minGap)));
+        return gaps;
+    }
+
     public static ZonedInterval roundUpMinutes(ZonedInterval i, int step) {
         ZonedDateTime start = roundUpMinutes(i.getStart(), step);
         ZonedDateTime end = roundUpMinutes(i.getEnd(), step);
         return start == i.getStart() && end == i.getEnd() ? i : ZonedInterval.of(start, end);
     }
 
+    /**
+     * Lazily iterates the slots of an interval every {@code step} from its start (inclusive) to its end (exclusive).
+     * <p>
+     * Slots are spaced on the instant time-line, so they stay evenly spaced across DST transitions.
+     * The stream is exactly sized and splits evenly when run in parallel.
+     */
+    public static Stream<ZonedDateTime> slots(ReadableZonedInterval i, Duration step) {
+        ZoneId zone = i.getZone();
+        return slotMillis(i, step).mapToObj(millis -> ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), zone));
+    }
+
+    /**
+     * Lazily iterates the slots of an interval every {@code step} minutes, the first slot being aligned like
+     * {@link #roundUpMinutes(ZonedDateTime, int)} and not before the start of the interval.
+     * <p>
+     * Slots are spaced on the instant time-line and DST transitions shifting the offset by whole hours keep them aligned.
+     * The stream is exactly sized and splits evenly when run in parallel.
+     */
+    public static Stream<ZonedDateTime> slots(ReadableZonedInterval i, int step) {
+        ZoneId zone = i.getZone();
+        return slotMillis(i, step).mapToObj(millis -> ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), zone));
+    }
+
+    public static LongStream slotMillis(ReadableZonedInterval i, Duration step) {
+        return StreamSupport.longStream(SlotSpliterator.of(i.getStartMillis(), step.toMillis(), i.getEndMillis()), false);
+    }
+
+    public static LongStream slotMillis(ReadableZonedInterval i, int step) {
+        if (step <= 0 || 60 % step != 0) throw new IllegalArgumentException("Invalid step: " + step);
+        long stepMillis = step * 60_000L;
+        long first = roundUpMinutes(i.getStart(), step).toInstant().toEpochMilli();
+        if (first < i.getStartMillis()) first += stepMillis;
+        return StreamSupport.longStream(SlotSpliterator.of(first, stepMillis, i.getEndMillis()), false);
+    }
+
     public static ZonedDateTime roundDownMinutes(ZonedDateTime time, int step) {
         int mins = time.getMinute();
         time = time.withSecond(0).withNano(0);
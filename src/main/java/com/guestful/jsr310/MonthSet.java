@@ -0,0 +1,72 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Month;
+import java.util.Collection;
+
+/**
+ * Immutable set of {@link Month}s backed by a bitmask (bit 0 for January).
+ * <p>
+ * All the 4096 possible sets are precomputed, so factories never allocate, {@link #contains(Month)}
+ * is a bit test and set algebra is a bitwise operation.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class MonthSet extends EnumMaskSet<Month, MonthSet> {
+
+    private static final Month[] MONTHS = Month.values();
+    private static final MonthSet[] SETS = new MonthSet[full(MONTHS) + 1];
+
+    static {
+        for (int mask = 0; mask < SETS.length; mask++) {
+            SETS[mask] = new MonthSet(mask);
+        }
+    }
+
+    public static final MonthSet EMPTY = SETS[0];
+    public static final MonthSet ALL = SETS[SETS.length - 1];
+
+    private MonthSet(int mask) {
+        super(MONTHS, mask);
+    }
+
+    @Override
+    MonthSet set(int mask) {
+        return SETS[mask];
+    }
+
+    public static MonthSet ofMask(int mask) {
+        return SETS[checkMask(MONTHS, mask)];
+    }
+
+    public static MonthSet of(Month... months) {
+        return SETS[maskOf(months)];
+    }
+
+    public static MonthSet of(Collection<Month> months) {
+        if (months instanceof MonthSet) return (MonthSet) months;
+        return SETS[maskOf(months)];
+    }
+
+    /**
+     * @return the months from {@code start} to {@code end} inclusive, wrapping around the year (i.e. NOVEMBER to FEBRUARY)
+     */
+    public static MonthSet range(Month start, Month end) {
+        return SETS[rangeMask(MONTHS, start, end)];
+    }
+
+}
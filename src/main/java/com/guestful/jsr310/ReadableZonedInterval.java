@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only view of a half-open time interval {@code [start, end)} bound to a time zone.
+ * <p>
+ * Implemented by {@link ZonedInterval}, which keeps the original {@link ZonedDateTime} bounds,
+ * and by {@link CompactZonedInterval}, which only keeps the epoch millis and the zone.
+ * The predicates follow the semantics documented on {@link ZonedInterval}.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public interface ReadableZonedInterval {
+
+    ZoneId getZone();
+
+    ZonedDateTime getStart();
+
+    ZonedDateTime getEnd();
+
+    long getStartMillis();
+
+    long getEndMillis();
+
+    /**
+     * @see ZonedInterval#overlap(ReadableZonedInterval)
+     */
+    ReadableZonedInterval overlap(ReadableZonedInterval zonedInterval);
+
+    /**
+     * @see ZonedInterval#gap(ReadableZonedInterval)
+     */
+    ReadableZonedInterval gap(ReadableZonedInterval zonedInterval);
+
+    /**
+     * @see ZonedInterval#overlaps(ReadableZonedInterval)
+     */
+    default boolean overlaps(ReadableZonedInterval zonedInterval) {
+        return getStartMillis() < zonedInterval.getEndMillis() && zonedInterval.getStartMillis() < getEndMillis();
+    }
+
+    /**
+     * @see ZonedInterval#abuts(ReadableZonedInterval)
+     */
+    default boolean abuts(ReadableZonedInterval zonedInterval) {
+        return zonedInterval.getEndMillis() == getStartMillis() || getEndMillis() == zonedInterval.getStartMillis();
+    }
+
+    default boolean contains(ZonedDateTime instant) {
+        return contains(instant.toInstant());
+    }
+
+    default boolean contains(Instant instant) {
+        return contains(instant.toEpochMilli());
+    }
+
+    /**
+     * @see ZonedInterval#contains(long)
+     */
+    default boolean contains(long millisInstant) {
+        return millisInstant >= getStartMillis() && millisInstant < getEndMillis();
+    }
+
+    /**
+     * @see ZonedInterval#contains(ReadableZonedInterval)
+     */
+    default boolean contains(ReadableZonedInterval zonedInterval) {
+        long otherStart = zonedInterval.getStartMillis();
+        long thisStart = getStartMillis();
+        long thisEnd = getEndMillis();
+        return thisStart <= otherStart && otherStart < thisEnd && zonedInterval.getEndMillis() <= thisEnd;
+    }
+
+    /**
+     * @see ZonedInterval#toDurationMillis()
+     */
+    default long toDurationMillis() {
+        return Math.subtractExact(getEndMillis(), getStartMillis());
+    }
+
+    default Duration toDuration() {
+        long durMillis = toDurationMillis();
+        return durMillis == 0 ? Duration.ZERO : Duration.ofMillis(durMillis);
+    }
+
+}
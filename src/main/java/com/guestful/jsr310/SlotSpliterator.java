@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Exactly sized, evenly splittable spliterator over the instants
+ * {@code first + k * step} lying before an exclusive end, in epoch millis.
+ * <p>
+ * Slots are computed from their index, so no state is shared between split parts
+ * and steps are exact on the instant time-line whatever the DST transitions are.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+final class SlotSpliterator implements Spliterator.OfLong {
+
+    private final long first;
+    private final long step;
+    private long index;
+    private final long fence;
+
+    private SlotSpliterator(long first, long step, long index, long fence) {
+        this.first = first;
+        this.step = step;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    @Override
+    public OfLong trySplit() {
+        long lo = index, mid = (lo + fence) >>> 1;
+        if (lo >= mid) return null;
+        index = mid;
+        return new SlotSpliterator(first, step, lo, mid);
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+        if (index >= fence) return false;
+        action.accept(first + index++ * step);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+        long i = index, f = fence;
+        index = f;
+        for (; i < f; i++) {
+            action.accept(first + i * step);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Long> action) {
+        if (action instanceof LongConsumer) return tryAdvance((LongConsumer) action);
+        return tryAdvance((LongConsumer) action::accept);
+    }
+
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+    }
+
+    @Override
+    public Comparator<? super Long> getComparator() {
+        return null;
+    }
+
+    /**
+     * @param first first slot millis
+     * @param step  step in millis, strictly positive
+     * @param end   exclusive end millis
+     */
+    static SlotSpliterator of(long first, long step, long end) {
+        if (step <= 0) throw new IllegalArgumentException("Invalid step: " + step);
+        long count = first >= end ? 0 : (end - 1 - first) / step + 1;
+        return new SlotSpliterator(first, step, 0, count);
+    }
+
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hierarchical timing wheel scheduling tasks at a {@link ZonedDateTime} or at the end of a
+ * {@link ReadableZonedInterval}, with O(1) insertion and cancellation.
+ * <p>
+ * Time is read from the given {@link Clock} and counted in ticks from the creation of the wheel. Each level has
+ * 64 buckets, a bucket at level {@code n} spanning {@code 64^n} ticks, and enough levels are kept to cover any
+ * deadline. A bucket is a linked list of its timeouts, and a bit set of the non empty buckets per level lets
+ * {@link #advance()} jump straight to the next bucket to expire or cascade, so a clock moving days ahead (like a
+ * {@link FixedClock} in tests) does not step through every tick. Deadlines are rounded up to the tick: a task never
+ * runs early.
+ * <p>
+ * The wheel moves either when {@link #advance()} is called or, after {@link #start()}, from a background thread
+ * ticking at the tick duration. Expired tasks are collected in one pass and dispatched to the executor after
+ * the wheel lock is released. {@link #defaultExecutor()} uses virtual threads when the runtime has them.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class TimingWheel implements AutoCloseable {
+
+    private static final int BITS = 6;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final int LEVELS = (63 + BITS - 1) / BITS;
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final long origin;
+    private final Executor executor;
+    private final Timeout[][] buckets = new Timeout[LEVELS][1 << BITS];
+    private final long[] occupied = new long[LEVELS];
+    private long current;
+    private int size;
+    private volatile Thread ticker;
+
+    public TimingWheel(Clock clock, Duration tick, Executor executor) {
+        this.tickMillis = tick.toMillis();
+        if (tickMillis <= 0) throw new IllegalArgumentException("Tick must be at least 1ms: " + tick);
+        this.clock = clock;
+        this.executor = executor;
+        this.origin = clock.millis();
+    }
+
+    /**
+     * @return An executor starting a virtual thread per task when available (Java 21+), the common pool otherwise.
+     * The instance is shared by the whole process, created on first use, and must not be shut down.
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    public Timeout schedule(ZonedDateTime deadline, Runnable task) {
+        return schedule(deadline.toInstant().toEpochMilli(), task);
+    }
+
+    /**
+     * Schedules the task at the end of the interval, i.e. to release a table when a booking ends.
+     */
+    public Timeout schedule(ReadableZonedInterval interval, Runnable task) {
+        return schedule(interval.getEndMillis(), task);
+    }
+
+    public Timeout schedule(Duration delay, Runnable task) {
+        return schedule(clock.millis() + delay.toMillis(), task);
+    }
+
+    public Timeout schedule(long deadlineMillis, Runnable task) {
+        long elapsed = deadlineMillis - origin;
+        Timeout timeout = new Timeout(this, deadlineMillis, elapsed <= 0 ? 0 : (elapsed - 1) / tickMillis + 1, task);
+        synchronized (this) {
+            if (insert(timeout)) {
+                size++;
+                return timeout;
+            }
+            timeout.state = Timeout.EXPIRED;
+        }
+        executor.execute(task);
+        return timeout;
+    }
+
+    /**
+     * @return The number of pending timeouts
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Moves the wheel to the current time of the clock and dispatches the expired tasks to the executor.
+     * <p>
+     * If the executor (or a task, when run inline) throws, the other expired tasks are still dispatched and the
+     * first failure is rethrown afterwards, with the next ones suppressed.
+     *
+     * @return The number of tasks dispatched
+     */
+    public int advance() {
+        long target = Math.floorDiv(clock.millis() - origin, tickMillis);
+        List<Timeout> expired = new ArrayList<>();
+        synchronized (this) {
+            for (long next; (next = nextEvent()) <= target; ) {
+                current = next;
+                for (int level = LEVELS - 1; level >= 0; level--) {
+                    if (level > 0 && (current & ((1L << (BITS * level)) - 1)) != 0) continue;
+                    int index = (int) (current >>> (BITS * level)) & MASK;
+                    Timeout timeout = buckets[level][index];
+                    if (timeout == null) continue;
+                    buckets[level][index] = null;
+                    occupied[level] &= ~(1L << index);
+                    while (timeout != null) {
+                        Timeout following = timeout.next;
+                        timeout.next = timeout.prev = null;
+                        if (!insert(timeout)) {
+                            timeout.state = Timeout.EXPIRED;
+                            size--;
+                            expired.add(timeout);
+                        }
+                        timeout = following;
+                    }
+                }
+            }
+            if (target > current) current = target;
+        }
+        // every expired task is dispatched even if one fails: the first failure is rethrown afterwards
+        Throwable failure = null;
+        for (Timeout timeout : expired) {
+            try {
+                executor.execute(timeout.task);
+            } catch (Throwable e) {
+                if (failure == null) failure = e;
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new UndeclaredThrowableException(failure);
+        return expired.size();
+    }
+
+    /**
+     * Starts a daemon thread advancing the wheel at each tick, until {@link #close()}.
+     * <p>
+     * Failures of the tasks (with an executor running them inline) or of the executor are reported to the
+     * {@link Thread.UncaughtExceptionHandler} of the ticker thread, which keeps ticking.
+     */
+    public synchronized TimingWheel start() {
+        if (ticker != null) throw new IllegalStateException("Already started");
+        Thread thread = new Thread(() -> {
+            Thread self = Thread.currentThread();
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+            while (!self.isInterrupted()) {
+                try {
+                    advance();
+                } catch (Throwable e) {
+                    self.getUncaughtExceptionHandler().uncaughtException(self, e);
+                }
+                LockSupport.parkNanos(this, tickNanos);
+            }
+        }, "jsr310-timing-wheel");
+        thread.setDaemon(true);
+        ticker = thread;
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Stops the ticker thread started by {@link #start()}, waiting for its current tick to complete.
+     * <p>
+     * Pending timeouts are neither cancelled nor run: they stay in the wheel and expire at the next
+     * {@link #advance()}, if any. The executor is not shut down since the wheel does not own it.
+     */
+    @Override
+    public void close() {
+        Thread thread = ticker;
+        if (thread == null) return;
+        ticker = null;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return false if the deadline is already reached
+     */
+    private boolean insert(Timeout timeout) {
+        if (timeout.tick <= current) return false;
+        int level = (63 - Long.numberOfLeadingZeros(timeout.tick ^ current)) / BITS;
+        int index = (int) (timeout.tick >>> (BITS * level)) & MASK;
+        Timeout head = buckets[level][index];
+        timeout.level = level;
+        timeout.index = index;
+        timeout.next = head;
+        if (head != null) head.prev = timeout;
+        buckets[level][index] = timeout;
+        occupied[level] |= 1L << index;
+        return true;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) timeout.prev.next = timeout.next;
+        else buckets[timeout.level][timeout.index] = timeout.next;
+        if (timeout.next != null) timeout.next.prev = timeout.prev;
+        if (buckets[timeout.level][timeout.index] == null) occupied[timeout.level] &= ~(1L << timeout.index);
+        timeout.next = timeout.prev = null;
+        size--;
+    }
+
+    /**
+     * @return The first tick after the current one at which a non empty bucket expires or cascades
+     */
+    private long nextEvent() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * level;
+            int digit = (int) (current >>> shift) & MASK;
+            long later = digit == MASK ? 0 : occupied[level] & (-1L << (digit + 1));
+            if (later == 0) continue;
+            long rotation = shift + BITS >= 64 ? 0 : (current >>> (shift + BITS)) << (shift + BITS);
+            next = Math.min(next, rotation + ((long) Long.numberOfTrailingZeros(later) << shift));
+        }
+        return next;
+    }
+
+    private static final class DefaultExecutor {
+
+        static final Executor INSTANCE = create();
+
+        private static Executor create() {
+            try {
+                return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invoke();
+            } catch (Throwable e) {
+                return ForkJoinPool.commonPool();
+            }
+        }
+    }
+
+    public static final class Timeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimingWheel wheel;
+        private final long deadline;
+        private final long tick;
+        private final Runnable task;
+        private int state;
+        private int level;
+        private int index;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, long deadline, long tick, Runnable task) {
+            this.wheel = wheel;
+            this.deadline = deadline;
+            this.tick = tick;
+            this.task = task;
+        }
+
+        public Instant getDeadline() {
+            return Instant.ofEpochMilli(deadline);
+        }
+
+        public boolean isCancelled() {
+            synchronized (wheel) {
+                return state == CANCELLED;
+            }
+        }
+
+        public boolean isExpired() {
+            synchronized (wheel) {
+                return state == EXPIRED;
+            }
+        }
+
+        /**
+         * @return false if the task already expired or was already cancelled
+         */
+        public boolean cancel() {
+            synchronized (wheel) {
+                if (state != PENDING) return false;
+                state = CANCELLED;
+                wheel.unlink(this);
+                return true;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Deterministic clock whose time only moves when it is advanced, with a built-in scheduler.
+ * <p>
+ * Tasks are registered at a date or after a delay and run in order of their time (then of registration) while
+ * the clock is advanced with {@link #advance(Duration)}, {@link #advanceTo(ZonedDateTime)}, {@link #runNext()} or
+ * {@link #runAll()}. When a task runs, the clock reads the time it was scheduled at, so a simulated day completes
+ * as fast as its tasks can run.
+ * <p>
+ * Any thread can read the time and schedule tasks concurrently, including from inside tasks. Advancing is
+ * serialized. The variants taking an {@link Executor} run all the tasks due at the same instant in parallel and
+ * wait for them before time moves on, so the order between instants stays deterministic. Tasks must not advance
+ * the clock themselves.
+ * <p>
+ * When a task fails, the other tasks due at the same instant still run, then the first failure is rethrown by the
+ * method advancing the clock. Later tasks stay pending.
+ * <p>
+ * Clocks obtained with {@link #withZone(ZoneId)} share the time and the scheduler of this clock.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class VirtualClock extends Clock {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private final Scheduler scheduler;
+    private final ZoneId zone;
+
+    public VirtualClock(ZonedDateTime start) {
+        this(start.toInstant(), start.getZone());
+    }
+
+    public VirtualClock(Instant start, ZoneId zone) {
+        this(new Scheduler(start), zone);
+    }
+
+    private VirtualClock(Scheduler scheduler, ZoneId zone) {
+        this.scheduler = scheduler;
+        this.zone = zone;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public VirtualClock withZone(ZoneId zone) {
+        return zone.equals(this.zone) ? this : new VirtualClock(scheduler, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return scheduler.now;
+    }
+
+    public Task schedule(ZonedDateTime at, Runnable task) {
+        return scheduler.add(at.toInstant(), task);
+    }
+
+    public Task schedule(Instant at, Runnable task) {
+        return scheduler.add(at, task);
+    }
+
+    public Task schedule(Duration delay, Runnable task) {
+        if (delay.isNegative()) throw new IllegalArgumentException("Negative delay: " + delay);
+        return scheduler.add(scheduler.now.plus(delay), task);
+    }
+
+    /**
+     * @return The number of scheduled tasks not yet run nor cancelled
+     */
+    public int getPendingCount() {
+        return scheduler.pending();
+    }
+
+    /**
+     * @return The time of the next pending task in the zone of this clock, or null if there is none
+     */
+    public ZonedDateTime getNextTime() {
+        Instant next = scheduler.next();
+        return next == null ? null : ZonedDateTime.ofInstant(next, zone);
+    }
+
+    public void advance(Duration duration) {
+        advanceTo(scheduler.now.plus(duration), DIRECT);
+    }
+
+    public void advance(Duration duration, Executor executor) {
+        advanceTo(scheduler.now.plus(duration), executor);
+    }
+
+    public void advanceTo(ZonedDateTime time) {
+        advanceTo(time.toInstant(), DIRECT);
+    }
+
+    public void advanceTo(ZonedDateTime time, Executor executor) {
+        advanceTo(time.toInstant(), executor);
+    }
+
+    /**
+     * Runs in order all the tasks scheduled up to the given time, then sets the clock to this time. The clock never
+     * goes backward: tasks scheduled in the past run at the current time.
+     */
+    public void advanceTo(Instant time, Executor executor) {
+        synchronized (scheduler) {
+            while (scheduler.runBatch(time, executor) > 0) {
+                // one batch per distinct instant, until the next task is after the target time
+            }
+            if (time.isAfter(scheduler.now)) scheduler.now = time;
+        }
+    }
+
+    /**
+     * Advances the clock to the next pending task and runs it, along with the tasks due at the same instant.
+     *
+     * @return false if there was no pending task
+     */
+    public boolean runNext() {
+        return runNext(DIRECT);
+    }
+
+    public boolean runNext(Executor executor) {
+        synchronized (scheduler) {
+            return scheduler.runBatch(Instant.MAX, executor) > 0;
+        }
+    }
+
+    /**
+     * Runs the pending tasks, and those they schedule, as fast as possible until there is none left.
+     *
+     * @return The number of tasks run
+     */
+    public long runAll() {
+        return runAll(DIRECT);
+    }
+
+    public long runAll(Executor executor) {
+        long count = 0;
+        synchronized (scheduler) {
+            for (int n; (n = scheduler.runBatch(Instant.MAX, executor)) > 0; ) {
+                count += n;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "VirtualClock[" + ZonedDateTime.ofInstant(scheduler.now, zone) + "]";
+    }
+
+    public static final class Task {
+
+        private final Instant time;
+        private final long sequence;
+        private final Runnable runnable;
+        private final Scheduler scheduler;
+        private boolean cancelled;
+        private boolean done;
+
+        private Task(Scheduler scheduler, Instant time, long sequence, Runnable runnable) {
+            this.scheduler = scheduler;
+            this.time = time;
+            this.sequence = sequence;
+            this.runnable = runnable;
+        }
+
+        public Instant getTime() {
+            return time;
+        }
+
+        public boolean isDone() {
+            synchronized (scheduler.queue) {
+                return done;
+            }
+        }
+
+        public boolean isCancelled() {
+            synchronized (scheduler.queue) {
+                return cancelled;
+            }
+        }
+
+        /**
+         * @return false if the task already ran or was already cancelled
+         */
+        public boolean cancel() {
+            synchronized (scheduler.queue) {
+                if (done || cancelled) return false;
+                cancelled = true;
+                scheduler.cancelled++;
+                return true;
+            }
+        }
+    }
+
+    private static final class Scheduler {
+
+        final PriorityQueue<Task> queue = new PriorityQueue<>((a, b) -> {
+            int c = a.time.compareTo(b.time);
+            return c != 0 ? c : Long.compare(a.sequence, b.sequence);
+        });
+        volatile Instant now;
+        long sequence;
+        int cancelled;
+
+        Scheduler(Instant now) {
+            this.now = now;
+        }
+
+        Task add(Instant time, Runnable runnable) {
+            synchronized (queue) {
+                Task task = new Task(this, time, sequence++, runnable);
+                queue.add(task);
+                return task;
+            }
+        }
+
+        int pending() {
+            synchronized (queue) {
+                return queue.size() - cancelled;
+            }
+        }
+
+        Instant next() {
+            synchronized (queue) {
+                Task task = peek();
+                return task == null ? null : task.time.isBefore(now) ? now : task.time;
+            }
+        }
+
+        /**
+         * Polls the tasks due at the earliest instant not after the limit, moves the clock there and runs them.
+         */
+        int runBatch(Instant limit, Executor executor) {
+            List<Task> batch = new ArrayList<>();
+            synchronized (queue) {
+                Task first = peek();
+                if (first == null || first.time.isAfter(limit)) return 0;
+                while (true) {
+                    Task task = peek();
+                    if (task == null || !task.time.equals(first.time)) break;
+                    queue.poll();
+                    task.done = true;
+                    batch.add(task);
+                }
+                if (first.time.isAfter(now)) now = first.time;
+            }
+            // every task of the batch runs even if one fails: the first failure is rethrown afterwards
+            AtomicReference<Throwable> failure = new AtomicReference<>();
+            if (batch.size() == 1 || executor == DIRECT) {
+                for (Task task : batch) {
+                    run(task, failure);
+                }
+            } else {
+                CountDownLatch latch = new CountDownLatch(batch.size());
+                for (Task task : batch) {
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                run(task, failure);
+                            } finally {
+                                latch.countDown();
+                            }
+                        });
+                    } catch (Throwable e) {
+                        // rejected: the task will never count down by itself
+                        latch.countDown();
+                        fail(failure, e);
+                    }
+                }
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for tasks at " + now, e);
+                }
+            }
+            Throwable e = failure.get();
+            if (e instanceof RuntimeException) throw (RuntimeException) e;
+            if (e instanceof Error) throw (Error) e;
+            // checked exception thrown sneakily by a task
+            if (e != null) throw new UndeclaredThrowableException(e);
+            return batch.size();
+        }
+
+        private static void run(Task task, AtomicReference<Throwable> failure) {
+            try {
+                task.runnable.run();
+            } catch (Throwable e) {
+                fail(failure, e);
+            }
+        }
+
+        private static void fail(AtomicReference<Throwable> failure, Throwable e) {
+            if (!failure.compareAndSet(null, e)) failure.get().addSuppressed(e);
+        }
+
+        private Task peek() {
+            Task task;
+            while ((task = queue.peek()) != null && task.cancelled) {
+                queue.poll();
+                cancelled--;
+            }
+            return task;
+        }
+    }
+
+}
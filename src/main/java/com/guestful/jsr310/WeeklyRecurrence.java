@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Weekly recurrence rule, like "every Tuesday and Friday at 19:00", expanded lazily into occurrences.
+ * <p>
+ * Occurrences are computed with weekday arithmetic on epoch days: the n-th occurrence is found in O(1)
+ * and streams over a date range are exactly sized and split evenly when run in parallel.
+ * <p>
+ * The local time is resolved in the zone like {@link ZonedDateTime#of(LocalDate, LocalTime, ZoneId)}:
+ * an occurrence in a DST gap is moved later by the length of the gap and an occurrence in a DST overlap
+ * uses the earlier offset.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class WeeklyRecurrence {
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final ZoneId zoneId;
+    private final LocalTime time;
+    private final int days;
+    private final long millisOfDay;
+
+    private WeeklyRecurrence(ZoneId zoneId, LocalTime time, int days) {
+        this.zoneId = Objects.requireNonNull(zoneId, "zone cannot be null");
+        this.time = Objects.requireNonNull(time, "time cannot be null");
+        if (days == 0) throw new IllegalArgumentException("No day of week");
+        this.days = days;
+        this.millisOfDay = time.toNanoOfDay() / 1_000_000;
+    }
+
+    public ZoneId getZone() {
+        return zoneId;
+    }
+
+    public LocalTime getTime() {
+        return time;
+    }
+
+    public DayOfWeekSet getDays() {
+        return DayOfWeekSet.ofMask(days);
+    }
+
+    public boolean occursOn(DayOfWeek day) {
+        return (days & (1 << (day.getValue() - 1))) != 0;
+    }
+
+    /**
+     * @return the first occurrence at or after the given instant
+     */
+    public long nextMillis(long epochMilli) {
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zoneId);
+        long epochDay = resolver.getLocalEpochDay(epochMilli);
+        int dow = dayOfWeek(epochDay);
+        if ((days & (1 << dow)) != 0) {
+            long occurrence = resolver.toEpochMilli(epochDay * MILLIS_PER_DAY + millisOfDay);
+            if (occurrence >= epochMilli) return occurrence;
+        }
+        long next = epochDay + 1 + daysUntil((dow + 1) % 7);
+        return resolver.toEpochMilli(next * MILLIS_PER_DAY + millisOfDay);
+    }
+
+    public ZonedDateTime next(ZonedDateTime from) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(nextMillis(from.toInstant().toEpochMilli())), zoneId);
+    }
+
+    /**
+     * @return the occurrences on the dates between {@code from} (inclusive) and {@code to} (exclusive)
+     */
+    public LongStream occurrenceMillis(LocalDate from, LocalDate to) {
+        return StreamSupport.longStream(new OccurrenceSpliterator(from.toEpochDay(), to.toEpochDay()), false);
+    }
+
+    /**
+     * @return the occurrences during {@code weeks} weeks starting on {@code from}
+     */
+    public LongStream occurrenceMillis(LocalDate from, int weeks) {
+        return occurrenceMillis(from, from.plusWeeks(weeks));
+    }
+
+    /**
+     * @return the infinite ordered stream of occurrences at or after the given instant
+     */
+    public LongStream occurrenceMillis(long fromEpochMilli) {
+        return LongStream.iterate(nextMillis(fromEpochMilli), m -> nextMillis(m + 1));
+    }
+
+    public Stream<ZonedDateTime> occurrences(LocalDate from, LocalDate to) {
+        return occurrenceMillis(from, to).mapToObj(this::toZonedDateTime);
+    }
+
+    public Stream<ZonedDateTime> occurrences(LocalDate from, int weeks) {
+        return occurrenceMillis(from, weeks).mapToObj(this::toZonedDateTime);
+    }
+
+    public Stream<ZonedDateTime> occurrences(ZonedDateTime from) {
+        return occurrenceMillis(from.toInstant().toEpochMilli()).mapToObj(this::toZonedDateTime);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        WeeklyRecurrence that = (WeeklyRecurrence) o;
+        return days == that.days && time.equals(that.time) && zoneId.equals(that.zoneId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = zoneId.hashCode();
+        result = 31 * result + time.hashCode();
+        result = 31 * result + days;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (occursOn(day)) sb.append(sb.length() == 0 ? "" : ",").append(Jsr310Extensions.getShortName(day));
+        }
+        return sb.append(' ').append(time).append(' ').append(zoneId).toString();
+    }
+
+    private ZonedDateTime toZonedDateTime(long epochMilli) {
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zoneId);
+    }
+
+    /**
+     * @return the number of days from the given day of week (0 for Monday) to the next one of the rule, 0 included
+     */
+    private int daysUntil(int dow) {
+        int rotated = ((days >>> dow) | (days << (7 - dow))) & 0x7F;
+        return Integer.numberOfTrailingZeros(rotated);
+    }
+
+    private static int dayOfWeek(long epochDay) {
+        // 0 for Monday, 1970-01-01 is a Thursday
+        return (int) Math.floorMod(epochDay + 3, 7);
+    }
+
+    public static WeeklyRecurrence of(ZoneId zoneId, LocalTime time, DayOfWeek... days) {
+        return new WeeklyRecurrence(zoneId, time, DayOfWeekSet.of(days).getMask());
+    }
+
+    public static WeeklyRecurrence of(ZoneId zoneId, LocalTime time, Collection<DayOfWeek> days) {
+        return new WeeklyRecurrence(zoneId, time, DayOfWeekSet.of(days).getMask());
+    }
+
+    /**
+     * Occurrence {@code k} is on day {@code firstDay + (k / perWeek) * 7 + offsets[k % perWeek]}.
+     */
+    private final class OccurrenceSpliterator implements Spliterator.OfLong {
+
+        private final long firstDay;
+        private final int[] offsets;
+        private final ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zoneId);
+        private long index;
+        private final long fence;
+
+        OccurrenceSpliterator(long fromDay, long toDay) {
+            this.firstDay = fromDay;
+            int dow = dayOfWeek(fromDay);
+            int[] o = new int[Integer.bitCount(days)];
+            for (int d = 0, n = 0; d < 7; d++) {
+                if ((days & (1 << ((dow + d) % 7))) != 0) o[n++] = d;
+            }
+            this.offsets = o;
+            long span = Math.max(0, toDay - fromDay);
+            long count = span / 7 * o.length;
+            for (int offset : o) {
+                if (offset < span % 7) count++;
+            }
+            this.fence = count;
+        }
+
+        private OccurrenceSpliterator(OccurrenceSpliterator parent, long index, long fence) {
+            this.firstDay = parent.firstDay;
+            this.offsets = parent.offsets;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        private long at(long k) {
+            long day = firstDay + k / offsets.length * 7 + offsets[(int) (k % offsets.length)];
+            return resolver.toEpochMilli(day * MILLIS_PER_DAY + millisOfDay);
+        }
+
+        @Override
+        public OfLong trySplit() {
+            long lo = index, mid = (lo + fence) >>> 1;
+            if (lo >= mid) return null;
+            index = mid;
+            return new OccurrenceSpliterator(this, lo, mid);
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (index >= fence) return false;
+            action.accept(at(index++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            long i = index, f = fence;
+            index = f;
+            for (; i < f; i++) {
+                action.accept(at(i));
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Long> action) {
+            if (action instanceof LongConsumer) return tryAdvance((LongConsumer) action);
+            return tryAdvance((LongConsumer) action::accept);
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+
+}
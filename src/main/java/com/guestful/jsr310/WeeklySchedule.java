@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Weekly opening hours compiled into a bitmap of the 10080 minutes of a week, in a zone.
+ * <p>
+ * {@link #isOpen(long)}, {@link #nextOpening(long)} and {@link #nextClosing(long)} resolve the local
+ * minute of week of an instant with {@link ZoneOffsetResolver} and test or scan the bitmap: they do not
+ * allocate. Local times are those of the zone, so opening hours follow DST changes; an opening time
+ * falling in a DST gap is moved later by the length of the gap, like {@link ZonedDateTime#of}.
+ * <p>
+ * Rules have a minute precision. Instances are immutable and thread-safe.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class WeeklySchedule {
+
+    /**
+     * Returned by the primitive lookups when the schedule never opens (or never closes).
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private static final int MINUTES_PER_DAY = 1440;
+    private static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private final ZoneId zoneId;
+    private final long[] open;
+    private final long[] openings;
+    private final long[] closings;
+
+    private WeeklySchedule(ZoneId zoneId, long[] open) {
+        this.zoneId = zoneId;
+        this.open = open;
+        this.openings = new long[open.length];
+        this.closings = new long[open.length];
+        for (int m = 0; m < MINUTES_PER_WEEK; m++) {
+            boolean now = get(open, m);
+            boolean before = get(open, m == 0 ? MINUTES_PER_WEEK - 1 : m - 1);
+            if (now && !before) openings[m >>> 6] |= 1L << m;
+            if (!now && before) closings[m >>> 6] |= 1L << m;
+        }
+    }
+
+    public ZoneId getZone() {
+        return zoneId;
+    }
+
+    public boolean isOpen(long epochMilli) {
+        return get(open, minuteOfWeek(ZoneOffsetResolver.of(zoneId), epochMilli));
+    }
+
+    public boolean isOpen(Instant instant) {
+        return isOpen(instant.toEpochMilli());
+    }
+
+    public boolean isOpen(ZonedDateTime dt) {
+        return isOpen(dt.toInstant().toEpochMilli());
+    }
+
+    /**
+     * @return the first instant at or after the given one where the schedule goes from closed to open, or {@link #NEVER}
+     */
+    public long nextOpening(long epochMilli) {
+        return next(openings, true, epochMilli);
+    }
+
+    /**
+     * @return the first instant at or after the given one where the schedule goes from open to closed, or {@link #NEVER}
+     */
+    public long nextClosing(long epochMilli) {
+        return next(closings, false, epochMilli);
+    }
+
+    /**
+     * @return the next opening at or after the given date-time, or null if the schedule never opens
+     */
+    public ZonedDateTime nextOpening(ZonedDateTime dt) {
+        return toZonedDateTime(nextOpening(dt.toInstant().toEpochMilli()));
+    }
+
+    public ZonedDateTime nextClosing(ZonedDateTime dt) {
+        return toZonedDateTime(nextClosing(dt.toInstant().toEpochMilli()));
+    }
+
+    /**
+     * @return the lazy stream of the open intervals within the window, cut at its bounds
+     */
+    public Stream<ZonedInterval> openIntervals(ReadableZonedInterval window) {
+        long end = window.getEndMillis();
+        Spliterator<ZonedInterval> spliterator = new Spliterators.AbstractSpliterator<ZonedInterval>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+            long t = window.getStartMillis();
+
+            @Override
+            public boolean tryAdvance(Consumer<? super ZonedInterval> action) {
+                if (t >= end) return false;
+                long start = isOpen(t) ? t : nextOpening(t);
+                if (start >= end) {
+                    t = end;
+                    return false;
+                }
+                long stop = Math.min(nextClosing(start), end);
+                action.accept(ZonedInterval.of(start, stop, zoneId));
+                t = stop;
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Finds the first instant at or after the given one where {@link #isOpen(long)} changes to the given state.
+     * <p>
+     * Outside of DST transitions, this is the instant of the next boundary minute. A boundary in a gap happens at the
+     * transition (the first instant whose local time is past it), one in an overlap can happen at both instants of
+     * its local time, and the state can also change at a transition itself when the local time jumps: each candidate
+     * is checked against {@link #isOpen(long)} before and after it.
+     */
+    private long next(long[] boundaries, boolean opening, long epochMilli) {
+        ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zoneId);
+        long localMillis = resolver.toLocalMillis(epochMilli);
+        long localMinute = Math.floorDiv(localMillis, MILLIS_PER_MINUTE);
+        // monday 00:00 of the previous week (1970-01-01 is a Thursday), so that the scan can start one day before
+        // the instant: a boundary before the local time of the instant can resolve after it around a transition
+        long weekStart = localMinute - Math.floorMod(localMinute + 3 * MINUTES_PER_DAY, MINUTES_PER_WEEK) - MINUTES_PER_WEEK;
+        int from = (int) (localMinute - weekStart);
+        long best = NEVER;
+        for (int m = nextSetBit(boundaries, from - MINUTES_PER_DAY); m >= 0 && m < from + 2 * MINUTES_PER_WEEK; m = nextSetBit(boundaries, m + 1)) {
+            long local = (weekStart + m) * MILLIS_PER_MINUTE;
+            long earliest = resolver.toEpochMilliAtGapEnd(local);
+            // candidates only grow with the local time
+            if (earliest >= best) break;
+            if (earliest >= epochMilli && changesTo(resolver, earliest, opening)) {
+                best = earliest;
+                break;
+            }
+            long latest = resolver.toEpochMilliAtOverlapEnd(local);
+            if (latest != earliest && latest >= epochMilli && latest < best && changesTo(resolver, latest, opening)) best = latest;
+        }
+        long limit = epochMilli + (2 * MINUTES_PER_WEEK + MINUTES_PER_DAY) * MILLIS_PER_MINUTE;
+        for (long t = resolver.nextTransition(epochMilli); t < best && t < limit; t = resolver.nextTransition(t + 1)) {
+            if (changesTo(resolver, t, opening)) return t;
+        }
+        return best;
+    }
+
+    private boolean changesTo(ZoneOffsetResolver resolver, long epochMilli, boolean opening) {
+        return get(open, minuteOfWeek(resolver, epochMilli)) == opening && get(open, minuteOfWeek(resolver, epochMilli - 1)) != opening;
+    }
+
+    private ZonedDateTime toZonedDateTime(long epochMilli) {
+        return epochMilli == NEVER ? null : ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), zoneId);
+    }
+
+    private static int minuteOfWeek(ZoneOffsetResolver resolver, long epochMilli) {
+        long localMinute = Math.floorDiv(resolver.toLocalMillis(epochMilli), MILLIS_PER_MINUTE);
+        return (int) Math.floorMod(localMinute + 3 * MINUTES_PER_DAY, MINUTES_PER_WEEK);
+    }
+
+    /**
+     * @return the first set bit at or after {@code from}, looking at the week bitmap as repeated forever, or -1 if none
+     */
+    private static int nextSetBit(long[] words, int from) {
+        int base = from - from % MINUTES_PER_WEEK;
+        int m = from % MINUTES_PER_WEEK;
+        for (int round = 0; round < 2; round++) {
+            int w = m >>> 6;
+            long word = words[w] & (-1L << m);
+            while (true) {
+                if (word != 0) return base + (w << 6) + Long.numberOfTrailingZeros(word);
+                if (++w == words.length) break;
+                word = words[w];
+            }
+            base += MINUTES_PER_WEEK;
+            m = 0;
+        }
+        return -1;
+    }
+
+    private static boolean get(long[] words, int m) {
+        return (words[m >>> 6] & (1L << m)) != 0;
+    }
+
+    public static Builder builder(ZoneId zoneId) {
+        return new Builder(zoneId);
+    }
+
+    public static final class Builder {
+
+        private final ZoneId zoneId;
+        private final long[] open = new long[(MINUTES_PER_WEEK + 63) >>> 6];
+
+        private Builder(ZoneId zoneId) {
+            this.zoneId = Objects.requireNonNull(zoneId, "zone cannot be null");
+        }
+
+        /**
+         * Opens the given days from {@code from} to {@code to}. If {@code to} is not after {@code from},
+         * the opening continues on the next day (i.e. 19:00 to 01:00), and equal times mean 24 hours.
+         */
+        public Builder open(DayOfWeekSet days, LocalTime from, LocalTime to) {
+            int start = from.getHour() * 60 + from.getMinute();
+            int end = to.getHour() * 60 + to.getMinute();
+            int length = end > start ? end - start : end - start + MINUTES_PER_DAY;
+            for (DayOfWeek day : days) {
+                int first = day.ordinal() * MINUTES_PER_DAY + start;
+                for (int i = 0; i < length; i++) {
+                    int m = (first + i) % MINUTES_PER_WEEK;
+                    open[m >>> 6] |= 1L << m;
+                }
+            }
+            return this;
+        }
+
+        public Builder open(DayOfWeek day, LocalTime from, LocalTime to) {
+            return open(DayOfWeekSet.of(day), from, to);
+        }
+
+        public WeeklySchedule build() {
+            return new WeeklySchedule(zoneId, Arrays.copyOf(open, open.length));
+        }
+    }
+
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves zone offsets and local fields from epoch millis without going through {@link ZoneRules}
+ * and without allocating.
+ * <p>
+ * The transitions of the zone are precomputed for a range of years into sorted primitive arrays,
+ * so a lookup is a binary search over the few transitions of the zone (O(log t)). Instants outside
+ * of the range fall back to {@link ZoneRules}. Zones with a fixed offset need no lookup at all.
+ * <p>
+ * Conversions from local to instant follow {@link java.time.ZonedDateTime#of(LocalDateTime, ZoneId)}:
+ * in a gap the local time is moved later by the length of the gap, in an overlap the earlier offset is used.
+ * <p>
+ * Instances are immutable and thread-safe.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class ZoneOffsetResolver {
+
+    public static final int DEFAULT_FROM_YEAR = 1970;
+    public static final int DEFAULT_TO_YEAR = 2100;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final ConcurrentMap<ZoneId, ZoneOffsetResolver> RESOLVERS = new ConcurrentHashMap<>();
+    private static volatile ZoneOffsetResolver[] byIndex = new ZoneOffsetResolver[0];
+
+    private final ZoneId zoneId;
+    private final ZoneRules rules;
+    private final long rangeStart;
+    private final long rangeEnd;
+    // transition i happens at transitions[i], offsets[i] applies before and offsets[i + 1] after
+    private final long[] transitions;
+    private final int[] offsets;
+    // local millis from which offsets[i + 1] must be used to convert a local time to an instant
+    private final long[] localSwitches;
+
+    private ZoneOffsetResolver(ZoneId zoneId, int fromYear, int toYear) {
+        if (fromYear > toYear) throw new IllegalArgumentException(fromYear + " > " + toYear);
+        this.zoneId = zoneId;
+        this.rules = zoneId.getRules();
+        if (rules.isFixedOffset()) {
+            this.rangeStart = Long.MIN_VALUE;
+            this.rangeEnd = Long.MAX_VALUE;
+            this.transitions = new long[0];
+            this.localSwitches = new long[0];
+            this.offsets = new int[]{rules.getOffset(Instant.EPOCH).getTotalSeconds()};
+        } else {
+            // one day of margin so that local conversions near the bounds stay within the range
+            this.rangeStart = LocalDateTime.of(fromYear, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC) * 1000 - MILLIS_PER_DAY;
+            this.rangeEnd = LocalDateTime.of(toYear + 1, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC) * 1000 + MILLIS_PER_DAY;
+            long[] t = new long[16];
+            int[] o = new int[17];
+            o[0] = rules.getOffset(Instant.ofEpochMilli(rangeStart)).getTotalSeconds();
+            int n = 0;
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(rangeStart));
+            while (transition != null && transition.toEpochSecond() * 1000 < rangeEnd) {
+                if (n == t.length) {
+                    t = Arrays.copyOf(t, n << 1);
+                    o = Arrays.copyOf(o, (n << 1) + 1);
+                }
+                t[n] = transition.toEpochSecond() * 1000;
+                o[++n] = transition.getOffsetAfter().getTotalSeconds();
+                transition = rules.nextTransition(transition.getInstant());
+            }
+            this.transitions = Arrays.copyOf(t, n);
+            this.offsets = Arrays.copyOf(o, n + 1);
+            this.localSwitches = new long[n];
+            for (int i = 0; i < n; i++) {
+                localSwitches[i] = transitions[i] + Math.max(offsets[i], offsets[i + 1]) * 1000L;
+            }
+        }
+    }
+
+    public ZoneId getZone() {
+        return zoneId;
+    }
+
+    /**
+     * @return the total offset in seconds of the zone at the given instant
+     */
+    public int getOffsetSeconds(long epochMilli) {
+        if (epochMilli < rangeStart || epochMilli >= rangeEnd) {
+            return rules.getOffset(Instant.ofEpochMilli(epochMilli)).getTotalSeconds();
+        }
+        return offsets[upperBound(transitions, epochMilli)];
+    }
+
+    /**
+     * @return the offset at the given instant ({@link ZoneOffset} caches the usual offsets)
+     */
+    public ZoneOffset getOffset(long epochMilli) {
+        return ZoneOffset.ofTotalSeconds(getOffsetSeconds(epochMilli));
+    }
+
+    /**
+     * @return the local date-time at the given instant, expressed as millis from 1970-01-01T00:00 local
+     */
+    public long toLocalMillis(long epochMilli) {
+        return epochMilli + getOffsetSeconds(epochMilli) * 1000L;
+    }
+
+    public long getLocalEpochDay(long epochMilli) {
+        return Math.floorDiv(toLocalMillis(epochMilli), MILLIS_PER_DAY);
+    }
+
+    public int getLocalMillisOfDay(long epochMilli) {
+        return (int) Math.floorMod(toLocalMillis(epochMilli), MILLIS_PER_DAY);
+    }
+
+    public int getLocalMinuteOfDay(long epochMilli) {
+        return getLocalMillisOfDay(epochMilli) / 60_000;
+    }
+
+    /**
+     * @return the ISO day of week at the given instant, from 1 (Monday) to 7 (Sunday)
+     */
+    public int getLocalDayOfWeek(long epochMilli) {
+        // 1970-01-01 is a Thursday
+        return (int) Math.floorMod(getLocalEpochDay(epochMilli) + 3, 7) + 1;
+    }
+
+    /**
+     * Converts a local date-time, expressed as millis from 1970-01-01T00:00 local, to an instant.
+     * Resolves gaps and overlaps like {@link java.time.ZonedDateTime#of(LocalDateTime, ZoneId)}.
+     */
+    public long toEpochMilli(long localMillis) {
+        if (localMillis < rangeStart || localMillis >= rangeEnd) {
+            LocalDateTime ldt = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000), (int) Math.floorMod(localMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+            return ldt.atZone(zoneId).toInstant().toEpochMilli();
+        }
+        return localMillis - offsets[upperBound(localSwitches, localMillis)] * 1000L;
+    }
+
+    /**
+     * Converts the local date-time at the start of the given day to an instant.
+     * Resolves a gap like {@link java.time.LocalDate#atStartOfDay(ZoneId)}: the day starts at the end of the gap.
+     */
+    public long startOfDay(long epochDay) {
+        return toEpochMilliAtGapEnd(epochDay * MILLIS_PER_DAY);
+    }
+
+    /**
+     * Converts a local date-time to an instant, resolving a local time in a gap to the end of the gap (the instant
+     * of the transition) and an overlap to the earlier offset. This is the first instant whose local time is at or
+     * after the given one.
+     */
+    public long toEpochMilliAtGapEnd(long localMillis) {
+        if (localMillis < rangeStart || localMillis >= rangeEnd) {
+            LocalDateTime ldt = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000), (int) Math.floorMod(localMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+            ZoneOffsetTransition transition = rules.getTransition(ldt);
+            return transition != null && transition.isGap() ? transition.toEpochSecond() * 1000 : ldt.atZone(zoneId).toInstant().toEpochMilli();
+        }
+        int k = upperBound(localSwitches, localMillis);
+        if (k < transitions.length && offsets[k + 1] > offsets[k] && localMillis >= transitions[k] + offsets[k] * 1000L) {
+            return transitions[k];
+        }
+        return localMillis - offsets[k] * 1000L;
+    }
+
+    /**
+     * Same as {@link #toEpochMilliAtGapEnd(long)}, but resolves a local time in an overlap to the later offset: this
+     * is the last instant whose local time is the given one.
+     */
+    public long toEpochMilliAtOverlapEnd(long localMillis) {
+        if (localMillis < rangeStart || localMillis >= rangeEnd) {
+            LocalDateTime ldt = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000), (int) Math.floorMod(localMillis, 1000) * 1_000_000, ZoneOffset.UTC);
+            ZoneOffsetTransition transition = rules.getTransition(ldt);
+            if (transition != null && transition.isGap()) return transition.toEpochSecond() * 1000;
+            return ldt.atZone(zoneId).withLaterOffsetAtOverlap().toInstant().toEpochMilli();
+        }
+        int k = upperBound(localSwitches, localMillis);
+        if (k < transitions.length && offsets[k + 1] < offsets[k] && localMillis >= transitions[k] + offsets[k + 1] * 1000L) {
+            return localMillis - offsets[k + 1] * 1000L;
+        }
+        return toEpochMilliAtGapEnd(localMillis);
+    }
+
+    /**
+     * @return the instant of the first offset transition at or after the given instant, or {@link Long#MAX_VALUE} if none
+     */
+    public long nextTransition(long epochMilli) {
+        if (epochMilli >= rangeStart && epochMilli < rangeEnd) {
+            int k = upperBound(transitions, epochMilli - 1);
+            if (k < transitions.length) return transitions[k];
+            if (rules.isFixedOffset()) return Long.MAX_VALUE;
+        }
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(epochMilli - 1));
+        return transition == null ? Long.MAX_VALUE : transition.toEpochSecond() * 1000;
+    }
+
+    /**
+     * Converts a local date-time to an instant, keeping the given offset if it is valid for this local date-time,
+     * like the {@code with*} methods of {@link java.time.ZonedDateTime} do.
+     */
+    public long toEpochMilli(long localMillis, int preferredOffsetSeconds) {
+        long epochMilli = localMillis - preferredOffsetSeconds * 1000L;
+        return getOffsetSeconds(epochMilli) == preferredOffsetSeconds ? epochMilli : toEpochMilli(localMillis);
+    }
+
+    /**
+     * @return the number of elements of the sorted array lower or equal to the key
+     */
+    private static int upperBound(long[] sorted, long key) {
+        int low = 0, high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @return the shared resolver of the zone, for the default range of years
+     */
+    public static ZoneOffsetResolver of(ZoneId zoneId) {
+        ZoneOffsetResolver resolver = RESOLVERS.get(zoneId);
+        return resolver != null ? resolver : RESOLVERS.computeIfAbsent(zoneId, z -> new ZoneOffsetResolver(z, DEFAULT_FROM_YEAR, DEFAULT_TO_YEAR));
+    }
+
+    /**
+     * @return the shared resolver of the zone registered at this index in {@link ZoneRegistry}
+     */
+    public static ZoneOffsetResolver of(int zoneIndex) {
+        ZoneOffsetResolver[] resolvers = byIndex;
+        ZoneOffsetResolver resolver;
+        if (zoneIndex < resolvers.length && (resolver = resolvers[zoneIndex]) != null) return resolver;
+        return register(zoneIndex);
+    }
+
+    private static synchronized ZoneOffsetResolver register(int zoneIndex) {
+        ZoneOffsetResolver[] resolvers = byIndex;
+        if (zoneIndex < resolvers.length && resolvers[zoneIndex] != null) return resolvers[zoneIndex];
+        ZoneOffsetResolver resolver = of(ZoneRegistry.get(zoneIndex));
+        ZoneOffsetResolver[] copy = Arrays.copyOf(resolvers, Math.max(resolvers.length, ZoneRegistry.size()));
+        copy[zoneIndex] = resolver;
+        byIndex = copy;
+        return resolver;
+    }
+
+    public static ZoneOffsetResolver of(ZoneId zoneId, int fromYear, int toYear) {
+        return new ZoneOffsetResolver(zoneId, fromYear, toYear);
+    }
+
+}
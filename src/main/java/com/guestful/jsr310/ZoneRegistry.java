@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide registry interning {@link ZoneId}s and their {@link ZoneRules}.
+ * <p>
+ * Each zone gets a small integer index, assigned in registration order and never reused, that compact
+ * data structures (i.e. {@link ZonedIntervalArray}) can store instead of a reference. Indexes are stable
+ * for the life of the process only: they must not be persisted unless zones are registered in a fixed
+ * order at startup.
+ * <p>
+ * Reads ({@link #of(String)}, {@link #get(int)}, {@link #indexOf(ZoneId)} of a known zone) are lock-free;
+ * only the first registration of a zone synchronizes.
+ * <p>
+ * Only canonical ids ({@link ZoneId#getId()}) are stored: aliases such as "+2" or "UTC+2" are resolved through
+ * {@link ZoneId#of(String)} on each lookup and share the entry of their canonical id. Region ids are bounded by the
+ * time-zone database, but fixed offset ids are not: only offsets in whole quarter hours (all the offsets in use) are
+ * registered, which bounds them to a few hundred ids, so that ids coming from external input cannot grow the registry
+ * without limit. Other offsets (i.e. "+01:23:45") work with {@link #of(String)} and {@link #getRules(String)} without
+ * being interned, and {@link #indexOf(String)} throws for them.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class ZoneRegistry {
+
+    private static final ConcurrentMap<String, Entry> BY_ID = new ConcurrentHashMap<>();
+    private static final LongAdder LOOKUPS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static volatile Entry[] byIndex = new Entry[64];
+    private static volatile int size;
+
+    private ZoneRegistry() {
+    }
+
+    /**
+     * Same as {@link ZoneId#of(String)}, returning an interned instance.
+     */
+    public static ZoneId of(String zoneId) {
+        return entry(zoneId).zone;
+    }
+
+    /**
+     * @throws IllegalArgumentException if this is a fixed offset zone not in whole quarter hours
+     */
+    public static int indexOf(String zoneId) {
+        Entry entry = entry(zoneId);
+        if (entry.index < 0) throw new IllegalArgumentException("Only offsets in whole quarter hours can be indexed: " + zoneId);
+        return entry.index;
+    }
+
+    public static int indexOf(ZoneId zoneId) {
+        return indexOf(zoneId.getId());
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if no zone has been registered with this index
+     */
+    public static ZoneId get(int index) {
+        return byIndex(index).zone;
+    }
+
+    public static ZoneRules getRules(int index) {
+        return byIndex(index).rules;
+    }
+
+    public static ZoneRules getRules(ZoneId zoneId) {
+        return entry(zoneId.getId()).rules;
+    }
+
+    public static ZoneRules getRules(String zoneId) {
+        return entry(zoneId).rules;
+    }
+
+    /**
+     * Registers the given zones, in this order, if not already registered.
+     */
+    public static void register(String... zoneIds) {
+        for (String zoneId : zoneIds) {
+            entry(zoneId);
+        }
+    }
+
+    /**
+     * @return the number of registered zones
+     */
+    public static int size() {
+        return size;
+    }
+
+    public static long getLookupCount() {
+        return LOOKUPS.sum();
+    }
+
+    /**
+     * @return the number of lookups which had to resolve a zone through {@link ZoneId#of(String)}
+     */
+    public static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    private static Entry entry(String zoneId) {
+        LOOKUPS.increment();
+        Entry entry = BY_ID.get(Objects.requireNonNull(zoneId, "zone cannot be null"));
+        if (entry != null) return entry;
+        MISSES.increment();
+        ZoneId zone = ZoneId.of(zoneId);
+        // aliases such as "+2" normalize to another id ("+02:00"): share its entry without storing the alias
+        entry = BY_ID.get(zone.getId());
+        return entry != null ? entry : register(zone);
+    }
+
+    private static Entry byIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("No zone registered at index " + index);
+        return byIndex[index];
+    }
+
+    /**
+     * @return the new entry, or an entry with a negative index, not stored, if the zone cannot be registered
+     */
+    private static synchronized Entry register(ZoneId zone) {
+        Entry entry = BY_ID.get(zone.getId());
+        if (entry != null) return entry;
+        ZoneId normalized = zone.normalized();
+        if (normalized instanceof ZoneOffset && ((ZoneOffset) normalized).getTotalSeconds() % 900 != 0) {
+            return new Entry(zone, zone.getRules(), -1);
+        }
+        Entry[] entries = byIndex;
+        int index = size;
+        // grow by doubling so that registering n zones copies O(n) entries overall
+        if (index == entries.length) entries = Arrays.copyOf(entries, entries.length * 2);
+        entry = new Entry(zone, zone.getRules(), index);
+        entries[index] = entry;
+        byIndex = entries;
+        // published after the array: readers checking the size see the entry
+        size = index + 1;
+        BY_ID.put(zone.getId(), entry);
+        return entry;
+    }
+
+    private static final class Entry {
+        final ZoneId zone;
+        final ZoneRules rules;
+        final int index;
+
+        Entry(ZoneId zone, ZoneRules rules, int index) {
+            this.zone = zone;
+            this.rules = rules;
+            this.index = index;
+        }
+    }
+
+}
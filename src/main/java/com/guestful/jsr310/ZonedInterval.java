@@ -15,14 +15,23 @@
  */
 package com.guestful.jsr310;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.*;
 import java.util.Objects;
 
 /**
+ * Half-open time interval {@code [start, end)} keeping its original {@link ZonedDateTime} bounds.
+ * <p>
+ * Epoch millis of both bounds are computed once at construction so that the predicates
+ * ({@link #overlaps(ReadableZonedInterval)}, {@link #gap(ReadableZonedInterval)},
+ * {@link #contains(ReadableZonedInterval)}, ...) only compare primitives.
+ * See {@link CompactZonedInterval} for a lighter representation.
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
-public class ZonedInterval implements Serializable {
+public class ZonedInterval implements ReadableZonedInterval, Serializable {
 
     public static final ZonedInterval EMPTY = Jsr310StaticExtensions.EMPTY_ZonedInterval;
 
@@ -34,6 +43,8 @@ public class ZonedInterval implements Serializable {
     private final ZonedDateTime start;
     private final ZonedDateTime end;
     private final ZoneId zoneId;
+    private transient long startMillis;
+    private transient long endMillis;
 
     private ZonedInterval(ZonedDateTime start, ZonedDateTime end) {
         this.start = Objects.requireNonNull(start, "start cannot be null");
@@ -42,6 +53,14 @@ public class ZonedInterval implements Serializable {
         if (this.start.isAfter(this.end)) {
             throw new IllegalStateException(start + " > " + end);
         }
+        this.startMillis = this.start.toInstant().toEpochMilli();
+        this.endMillis = this.end.toInstant().toEpochMilli();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        this.startMillis = start.toInstant().toEpochMilli();
+        this.endMillis = end.toInstant().toEpochMilli();
     }
 
     @Override
@@ -60,24 +79,29 @@ public class ZonedInterval implements Serializable {
         return result;
     }
 
+    @Override
     public ZoneId getZone() {
         return zoneId;
     }
 
+    @Override
     public ZonedDateTime getStart() {
         return start;
     }
 
+    @Override
     public ZonedDateTime getEnd() {
         return end;
     }
 
+    @Override
     public long getStartMillis() {
-        return start.toInstant().toEpochMilli();
+        return startMillis;
     }
 
+    @Override
     public long getEndMillis() {
-        return end.toInstant().toEpochMilli();
+        return endMillis;
     }
 
     /**
@@ -92,10 +116,11 @@ public class ZonedInterval implements Serializable {
         return start.toOffsetDateTime().toString() + "/" + end.toOffsetDateTime().toString();
     }
 
-    public ZonedInterval overlap(ZonedInterval zonedInterval) {
+    @Override
+    public ZonedInterval overlap(ReadableZonedInterval zonedInterval) {
         if (!overlaps(zonedInterval)) return null;
-        long start = Math.max(getStartMillis(), zonedInterval.getStartMillis());
-        long end = Math.min(getEndMillis(), zonedInterval.getEndMillis());
+        long start = Math.max(startMillis, zonedInterval.getStartMillis());
+        long end = Math.min(endMillis, zonedInterval.getEndMillis());
         return ZonedInterval.of(start, end, getZone());
     }
 
@@ -140,9 +165,10 @@ public class ZonedInterval implements Serializable {
      * @param zonedInterval the time interval to compare to, null means a zero length interval now
      * @return true if the time intervals overlap
      */
-    public boolean overlaps(ZonedInterval zonedInterval) {
-        long thisStart = getStartMillis();
-        long thisEnd = getEndMillis();
+    @Override
+    public boolean overlaps(ReadableZonedInterval zonedInterval) {
+        long thisStart = startMillis;
+        long thisEnd = endMillis;
         long otherStart = zonedInterval.getStartMillis();
         long otherEnd = zonedInterval.getEndMillis();
         return thisStart < otherEnd && otherStart < thisEnd;
@@ -172,11 +198,12 @@ public class ZonedInterval implements Serializable {
      * @return the gap interval, null if no gap
      * @since 1.1
      */
-    public ZonedInterval gap(ZonedInterval zonedInterval) {
+    @Override
+    public ZonedInterval gap(ReadableZonedInterval zonedInterval) {
         long otherStart = zonedInterval.getStartMillis();
         long otherEnd = zonedInterval.getEndMillis();
-        long thisStart = getStartMillis();
-        long thisEnd = getEndMillis();
+        long thisStart = startMillis;
+        long thisEnd = endMillis;
         if (thisStart > otherEnd) {
             return ZonedInterval.of(otherEnd, thisStart, getZone());
         } else if (otherStart > thisEnd) {
@@ -222,8 +249,9 @@ public class ZonedInterval implements Serializable {
      * @return true if the interval abuts
      * @since 1.1
      */
-    public boolean abuts(ZonedInterval zonedInterval) {
-        return zonedInterval.getEndMillis() == getStartMillis() || getEndMillis() == zonedInterval.getStartMillis();
+    @Override
+    public boolean abuts(ReadableZonedInterval zonedInterval) {
+        return zonedInterval.getEndMillis() == startMillis || endMillis == zonedInterval.getStartMillis();
     }
 
     /**
@@ -246,10 +274,12 @@ public class ZonedInterval implements Serializable {
      * @param instant the instant, null means now
      * @return true if this time interval contains the instant
      */
+    @Override
     public boolean contains(ZonedDateTime instant) {
         return contains(instant.toInstant());
     }
 
+    @Override
     public boolean contains(Instant instant) {
         return contains(instant.toEpochMilli());
     }
@@ -264,9 +294,10 @@ public class ZonedInterval implements Serializable {
      *                      millisecond instant from 1970-01-01T00:00:00Z
      * @return true if this time interval contains the millisecond
      */
+    @Override
     public boolean contains(long millisInstant) {
-        long thisStart = getStartMillis();
-        long thisEnd = getEndMillis();
+        long thisStart = startMillis;
+        long thisEnd = endMillis;
         return millisInstant >= thisStart && millisInstant < thisEnd;
     }
 
@@ -302,14 +333,37 @@ public class ZonedInterval implements Serializable {
      * @param zonedInterval the time interval to compare to, null means a zero duration interval now
      * @return true if this time interval contains the time interval
      */
-    public boolean contains(ZonedInterval zonedInterval) {
+    @Override
+    public boolean contains(ReadableZonedInterval zonedInterval) {
         long otherStart = zonedInterval.getStartMillis();
         long otherEnd = zonedInterval.getEndMillis();
-        long thisStart = getStartMillis();
-        long thisEnd = getEndMillis();
+        long thisStart = startMillis;
+        long thisEnd = endMillis;
         return thisStart <= otherStart && otherStart < thisEnd && otherEnd <= thisEnd;
     }
 
+    // ZonedInterval overloads kept for binary compatibility with code compiled against previous versions
+
+    public ZonedInterval overlap(ZonedInterval zonedInterval) {
+        return overlap((ReadableZonedInterval) zonedInterval);
+    }
+
+    public boolean overlaps(ZonedInterval zonedInterval) {
+        return overlaps((ReadableZonedInterval) zonedInterval);
+    }
+
+    public ZonedInterval gap(ZonedInterval zonedInterval) {
+        return gap((ReadableZonedInterval) zonedInterval);
+    }
+
+    public boolean abuts(ZonedInterval zonedInterval) {
+        return abuts((ReadableZonedInterval) zonedInterval);
+    }
+
+    public boolean contains(ZonedInterval zonedInterval) {
+        return contains((ReadableZonedInterval) zonedInterval);
+    }
+
     /**
      * Gets the duration of this time interval in milliseconds.
      * <p>
@@ -318,8 +372,9 @@ public class ZonedInterval implements Serializable {
      * @return the duration of the time interval in milliseconds
      * @throws ArithmeticException if the duration exceeds the capacity of a long
      */
+    @Override
     public long toDurationMillis() {
-        return safeAdd(getEndMillis(), -getStartMillis());
+        return safeAdd(endMillis, -startMillis);
     }
 
     /**
@@ -330,6 +385,7 @@ public class ZonedInterval implements Serializable {
      * @return the duration of the time interval
      * @throws ArithmeticException if the duration exceeds the capacity of a long
      */
+    @Override
     public Duration toDuration() {
         long durMillis = toDurationMillis();
         if (durMillis == 0) {
@@ -339,6 +395,13 @@ public class ZonedInterval implements Serializable {
         }
     }
 
+    /**
+     * @return a {@link CompactZonedInterval} with the same millisecond bounds and zone
+     */
+    public CompactZonedInterval toCompact() {
+        return CompactZonedInterval.of(startMillis, endMillis, zoneId);
+    }
+
     public ZonedInterval withZone(ZoneId zone) {
         if (this.zoneId.equals(zone)) return this;
         return ZonedInterval.of(start.withZoneSameInstant(zone), end.withZoneSameInstant(zone));
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Columnar container of intervals for bulk scans over large collections.
+ * <p>
+ * Intervals are stored as parallel {@code long[]} start and end millis plus a {@code short[]}
+ * column of {@link ZoneRegistry} indexes, so scans such as
+ * {@link #overlapsAll(ReadableZonedInterval)} are tight loops over primitive arrays. Zones the registry does not
+ * index (i.e. "+01:23:45" or historical local mean time offsets) are kept in a small per-array table instead, and
+ * their column holds a negative code.
+ * {@link ZonedInterval}s are only created when elements are read with {@link #get(int)}.
+ * <p>
+ * Predicates follow the semantics of {@link ZonedInterval}. This class is not thread-safe.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public class ZonedIntervalArray {
+
+    private long[] starts;
+    private long[] ends;
+    private short[] zoneIndexes;
+    private List<ZoneId> unindexedZones;
+    private int size;
+
+    public ZonedIntervalArray() {
+        this(16);
+    }
+
+    public ZonedIntervalArray(int initialCapacity) {
+        starts = new long[initialCapacity];
+        ends = new long[initialCapacity];
+        zoneIndexes = new short[initialCapacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void add(ReadableZonedInterval zonedInterval) {
+        add(zonedInterval.getStartMillis(), zonedInterval.getEndMillis(), zonedInterval.getZone());
+    }
+
+    public void add(long startMillis, long endMillis, ZoneId zoneId) {
+        if (startMillis > endMillis) {
+            throw new IllegalStateException(Instant.ofEpochMilli(startMillis) + " > " + Instant.ofEpochMilli(endMillis));
+        }
+        if (size == starts.length) {
+            int capacity = Math.max(16, size + (size >> 1));
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            zoneIndexes = Arrays.copyOf(zoneIndexes, capacity);
+        }
+        starts[size] = startMillis;
+        ends[size] = endMillis;
+        zoneIndexes[size] = zoneIndex(zoneId);
+        size++;
+    }
+
+    public long getStartMillis(int index) {
+        return starts[checkIndex(index)];
+    }
+
+    public long getEndMillis(int index) {
+        return ends[checkIndex(index)];
+    }
+
+    public ZoneId getZone(int index) {
+        return zone(zoneIndexes[checkIndex(index)]);
+    }
+
+    public ZonedInterval get(int index) {
+        return ZonedInterval.of(getStartMillis(index), getEndMillis(index), getZone(index));
+    }
+
+    /**
+     * @return the indexes of the intervals overlapping the given window, as defined by {@link ZonedInterval#overlaps(ReadableZonedInterval)}
+     */
+    public BitSet overlapsAll(ReadableZonedInterval window) {
+        return overlapsAll(window.getStartMillis(), window.getEndMillis());
+    }
+
+    public BitSet overlapsAll(long startMillis, long endMillis) {
+        long[] starts = this.starts, ends = this.ends;
+        long[] words = new long[(size + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            long hit = starts[i] < endMillis & startMillis < ends[i] ? 1L : 0L;
+            words[i >>> 6] |= hit << i;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * @return the indexes of the intervals containing the given instant, as defined by {@link ZonedInterval#contains(long)}
+     */
+    public BitSet containsAll(long millisInstant) {
+        long[] starts = this.starts, ends = this.ends;
+        long[] words = new long[(size + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            long hit = starts[i] <= millisInstant & millisInstant < ends[i] ? 1L : 0L;
+            words[i >>> 6] |= hit << i;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    public BitSet containsAll(Instant instant) {
+        return containsAll(instant.toEpochMilli());
+    }
+
+    /**
+     * @return the indexes of the intervals lasting strictly longer than the given duration
+     */
+    public BitSet longerThan(Duration duration) {
+        long min = duration.toMillis();
+        long[] starts = this.starts, ends = this.ends;
+        long[] words = new long[(size + 63) >>> 6];
+        for (int i = 0; i < size; i++) {
+            long hit = ends[i] - starts[i] > min ? 1L : 0L;
+            words[i >>> 6] |= hit << i;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * @return the duration in milliseconds of each interval
+     */
+    public long[] durations() {
+        long[] starts = this.starts, ends = this.ends;
+        long[] durations = new long[size];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = ends[i] - starts[i];
+        }
+        return durations;
+    }
+
+    public List<ZonedInterval> toList() {
+        List<ZonedInterval> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(ZonedInterval.of(starts[i], ends[i], zone(zoneIndexes[i])));
+        }
+        return list;
+    }
+
+    public static ZonedIntervalArray of(Collection<? extends ReadableZonedInterval> intervals) {
+        ZonedIntervalArray array = new ZonedIntervalArray(intervals.size());
+        intervals.forEach(array::add);
+        return array;
+    }
+
+    /**
+     * @return the registry index of the zone, or -(k + 1) for the k-th zone of {@link #unindexedZones}
+     */
+    private short zoneIndex(ZoneId zoneId) {
+        try {
+            int index = ZoneRegistry.indexOf(zoneId);
+            if (index <= Short.MAX_VALUE) return (short) index;
+        } catch (IllegalArgumentException ignored) {
+            // offset the registry refuses to intern
+        }
+        if (unindexedZones == null) unindexedZones = new ArrayList<>(2);
+        int k = unindexedZones.indexOf(zoneId);
+        if (k < 0) {
+            k = unindexedZones.size();
+            if (k > Short.MAX_VALUE) throw new IllegalStateException("Too many zones");
+            unindexedZones.add(zoneId);
+        }
+        return (short) -(k + 1);
+    }
+
+    private ZoneId zone(short code) {
+        return code >= 0 ? ZoneRegistry.get(code) : unindexedZones.get(-code - 1);
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        return index;
+    }
+
+}
@@ -0,0 +1,297 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Index of intervals answering overlap and stabbing queries without scanning every element.
+ * <p>
+ * Backed by an augmented interval tree (a treap ordered by start then end millis, each node
+ * keeping the maximum end millis of its subtree). Insertion and removal are in O(log n) and
+ * queries visit O((k + 1) log n) nodes for k results, usually much less.
+ * <p>
+ * Boundaries follow {@link ZonedInterval}: intervals are inclusive of the start instant and
+ * exclusive of the end, so abutting intervals do not overlap and a zero duration interval
+ * contains nothing.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public class ZonedIntervalIndex<T extends ReadableZonedInterval> implements Iterable<T> {
+
+    private Node<T> root;
+    private int size;
+    private int seed = 0x2545F491;
+
+    public ZonedIntervalIndex() {
+    }
+
+    public ZonedIntervalIndex(Iterable<? extends T> intervals) {
+        intervals.forEach(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    public void add(T interval) {
+        Objects.requireNonNull(interval, "interval cannot be null");
+        root = insert(root, interval.getStartMillis(), interval.getEndMillis(), interval);
+        size++;
+    }
+
+    /**
+     * Removes one occurrence of the given interval (compared with {@link Object#equals(Object)}).
+     *
+     * @return true if the index contained the interval
+     */
+    public boolean remove(ReadableZonedInterval interval) {
+        int before = size;
+        root = delete(root, interval.getStartMillis(), interval.getEndMillis(), interval);
+        return size != before;
+    }
+
+    /**
+     * @return all the intervals overlapping the given one, as defined by {@link ZonedInterval#overlaps(ReadableZonedInterval)}
+     */
+    public List<T> overlapping(ReadableZonedInterval interval) {
+        List<T> result = new ArrayList<>();
+        overlapping(interval.getStartMillis(), interval.getEndMillis(), result::add);
+        return result;
+    }
+
+    /**
+     * Calls the consumer with every interval overlapping {@code [startMillis, endMillis)}, ordered by start.
+     */
+    public void overlapping(long startMillis, long endMillis, Consumer<? super T> consumer) {
+        search(root, startMillis, endMillis, consumer);
+    }
+
+    /**
+     * @return all the intervals containing the given instant, as defined by {@link ZonedInterval#contains(long)}
+     */
+    public List<T> containing(long millisInstant) {
+        List<T> result = new ArrayList<>();
+        containing(millisInstant, result::add);
+        return result;
+    }
+
+    public List<T> containing(Instant instant) {
+        return containing(instant.toEpochMilli());
+    }
+
+    public List<T> containing(ZonedDateTime instant) {
+        return containing(instant.toInstant().toEpochMilli());
+    }
+
+    public void containing(long millisInstant, Consumer<? super T> consumer) {
+        // start <= t && t < end is the overlap of [t, t + 1ms)
+        search(root, millisInstant, millisInstant + 1, consumer);
+    }
+
+    /**
+     * @return true if at least one interval of this index overlaps the given one
+     */
+    public boolean conflicts(ReadableZonedInterval interval) {
+        return conflicts(interval.getStartMillis(), interval.getEndMillis());
+    }
+
+    public boolean conflicts(long startMillis, long endMillis) {
+        Node<T> node = root;
+        while (node != null) {
+            if (node.left != null && node.left.maxEnd > startMillis) {
+                // an interval on the left ends after the query start: either it overlaps,
+                // or everything on the right starts too late to overlap either
+                node = node.left;
+            } else if (node.start < endMillis && node.end > startMillis) {
+                return true;
+            } else if (node.start < endMillis) {
+                node = node.right;
+            } else {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Iterates over the intervals ordered by start, then end millis.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            final Deque<Node<T>> stack = new ArrayDeque<>();
+            Node<T> current;
+            int pos;
+
+            {
+                push(root);
+            }
+
+            void push(Node<T> n) {
+                for (; n != null; n = n.left) stack.push(n);
+            }
+
+            @Override
+            public boolean hasNext() {
+                return current != null && pos < current.values.size() || !stack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (current == null || pos >= current.values.size()) {
+                    if (stack.isEmpty()) throw new NoSuchElementException();
+                    current = stack.pop();
+                    pos = 0;
+                    push(current.right);
+                }
+                return current.values.get(pos++);
+            }
+        };
+    }
+
+    private void search(Node<T> node, long startMillis, long endMillis, Consumer<? super T> consumer) {
+        while (node != null && node.maxEnd > startMillis) {
+            search(node.left, startMillis, endMillis, consumer);
+            if (node.start >= endMillis) return;
+            if (node.end > startMillis) node.values.forEach(consumer);
+            node = node.right;
+        }
+    }
+
+    private Node<T> insert(Node<T> node, long start, long end, T value) {
+        if (node == null) return new Node<>(start, end, nextPriority(), value);
+        int c = compare(start, end, node);
+        if (c == 0) {
+            node.values.add(value);
+        } else if (c < 0) {
+            node.left = insert(node.left, start, end, value);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, start, end, value);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<T> delete(Node<T> node, long start, long end, Object value) {
+        if (node == null) return null;
+        int c = compare(start, end, node);
+        if (c < 0) {
+            node.left = delete(node.left, start, end, value);
+        } else if (c > 0) {
+            node.right = delete(node.right, start, end, value);
+        } else {
+            if (!node.values.remove(value)) return node;
+            size--;
+            if (!node.values.isEmpty()) return node;
+            return merge(node.left, node.right);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<T> merge(Node<T> left, Node<T> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> l = node.left;
+        node.left = l.right;
+        l.right = node;
+        node.update();
+        return l;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> r = node.right;
+        node.right = r.left;
+        r.left = node;
+        node.update();
+        return r;
+    }
+
+    private int nextPriority() {
+        // xorshift: cheap and good enough to keep the treap balanced
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        return seed = x;
+    }
+
+    private static int compare(long start, long end, Node<?> node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : Long.compare(end, node.end);
+    }
+
+    private static final class Node<T> {
+        final long start;
+        final long end;
+        final int priority;
+        final List<T> values = new ArrayList<>(1);
+        long maxEnd;
+        Node<T> left;
+        Node<T> right;
+
+        Node(long start, long end, int priority, T value) {
+            this.start = start;
+            this.end = end;
+            this.priority = priority;
+            this.maxEnd = end;
+            values.add(value);
+        }
+
+        void update() {
+            long max = end;
+            if (left != null && left.maxEnd > max) max = left.maxEnd;
+            if (right != null && right.maxEnd > max) max = right.maxEnd;
+            maxEnd = max;
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+
+/**
+ * Overlap join between two collections of intervals: finds every pair {@code (a, b)} such that
+ * {@code a.overlaps(b)}, with the semantics of {@link ZonedInterval#overlaps(ReadableZonedInterval)}.
+ * <p>
+ * Both sides are sorted by start millis, then merged with a sweep line keeping the set of
+ * intervals still active on each side, so the cost is O(n log n + k) instead of O(n * m).
+ * Matched pairs are streamed to a consumer and never materialized.
+ * <p>
+ * The parallel variants partition the time axis: each pair is reported by the only partition
+ * containing the start of its overlap, so no pair is reported twice. The consumer is then called
+ * concurrently and must be thread-safe.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class ZonedIntervalJoin {
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+    private static final int MIN_PARTITION_SIZE = 1 << 12;
+
+    private ZonedIntervalJoin() {
+    }
+
+    public static <A extends ReadableZonedInterval, B extends ReadableZonedInterval> void join(Collection<? extends A> left, Collection<? extends B> right, BiConsumer<? super A, ? super B> consumer) {
+        Side<A> a = new Side<>(left, false);
+        Side<B> b = new Side<>(right, false);
+        sweep(a, 0, a.size(), b, 0, b.size(), Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+    }
+
+    public static <A extends ReadableZonedInterval, B extends ReadableZonedInterval> void parallelJoin(Collection<? extends A> left, Collection<? extends B> right, BiConsumer<? super A, ? super B> consumer) {
+        parallelJoin(left, right, ForkJoinPool.commonPool(), consumer);
+    }
+
+    public static <A extends ReadableZonedInterval, B extends ReadableZonedInterval> void parallelJoin(Collection<? extends A> left, Collection<? extends B> right, ForkJoinPool pool, BiConsumer<? super A, ? super B> consumer) {
+        Side<A> a = new Side<>(left, true);
+        Side<B> b = new Side<>(right, true);
+        int total = a.size() + b.size();
+        int partitions = Math.min(pool.getParallelism() * PARTITIONS_PER_THREAD, Math.max(1, total / MIN_PARTITION_SIZE));
+        if (partitions <= 1 || a.size() == 0 || b.size() == 0) {
+            sweep(a, 0, a.size(), b, 0, b.size(), Long.MIN_VALUE, Long.MAX_VALUE, consumer);
+            return;
+        }
+        // partition bounds are quantiles of the left starts
+        long[] bounds = new long[partitions + 1];
+        bounds[0] = Long.MIN_VALUE;
+        bounds[partitions] = Long.MAX_VALUE;
+        for (int p = 1; p < partitions; p++) {
+            bounds[p] = a.starts[(int) ((long) a.size() * p / partitions)];
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            long lo = bounds[p], hi = bounds[p + 1];
+            if (lo == hi) continue;
+            tasks.add(ForkJoinTask.adapt(() -> sweep(a, a.from(lo), a.to(hi), b, b.from(lo), b.to(hi), lo, hi, consumer)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * Reports the overlapping pairs of {@code a[aFrom, aTo)} and {@code b[bFrom, bTo)} whose overlap starts in {@code [lo, hi)}.
+     */
+    private static <A, B> void sweep(Side<A> a, int aFrom, int aTo, Side<B> b, int bFrom, int bTo, long lo, long hi, BiConsumer<? super A, ? super B> consumer) {
+        int[] activeA = new int[16];
+        int[] activeB = new int[16];
+        int nA = 0, nB = 0;
+        int i = aFrom, j = bFrom;
+        while (i < aTo || j < bTo) {
+            if (j == bTo || i < aTo && a.starts[i] <= b.starts[j]) {
+                long start = a.starts[i], end = a.ends[i];
+                if (end > lo || start >= lo) {
+                    nB = match(start, end, lo, hi, b, activeB, nB, a.items[i], consumer, true);
+                    if (nA == activeA.length) activeA = Arrays.copyOf(activeA, nA << 1);
+                    activeA[nA++] = i;
+                }
+                i++;
+            } else {
+                long start = b.starts[j], end = b.ends[j];
+                if (end > lo || start >= lo) {
+                    nA = match(start, end, lo, hi, a, activeA, nA, b.items[j], consumer, false);
+                    if (nB == activeB.length) activeB = Arrays.copyOf(activeB, nB << 1);
+                    activeB[nB++] = j;
+                }
+                j++;
+            }
+        }
+    }
+
+    /**
+     * Matches an interval starting after all the active ones of the other side, pruning the expired ones.
+     *
+     * @return the new number of active intervals
+     */
+    @SuppressWarnings("unchecked")
+    private static <A, B> int match(long start, long end, long lo, long hi, Side<?> other, int[] active, int n, Object item, BiConsumer<? super A, ? super B> consumer, boolean itemIsLeft) {
+        // the item starts last: the overlap starts at its start
+        boolean report = start >= lo && start < hi;
+        for (int k = 0; k < n; ) {
+            int o = active[k];
+            long oEnd = other.ends[o];
+            if (oEnd <= start) {
+                // expired: cannot overlap this interval nor any later one
+                active[k] = active[--n];
+                continue;
+            }
+            if (report && start < oEnd && other.starts[o] < end) {
+                if (itemIsLeft) consumer.accept((A) item, (B) other.items[o]);
+                else consumer.accept((A) other.items[o], (B) item);
+            }
+            k++;
+        }
+        return n;
+    }
+
+    private static final class Side<T> {
+        final Object[] items;
+        final long[] starts;
+        final long[] ends;
+        final long maxDuration;
+
+        Side(Collection<? extends T> intervals, boolean parallel) {
+            items = intervals.toArray();
+            Comparator<Object> byStart = Comparator.comparingLong(o -> ((ReadableZonedInterval) o).getStartMillis());
+            if (parallel) Arrays.parallelSort(items, byStart);
+            else Arrays.sort(items, byStart);
+            starts = new long[items.length];
+            ends = new long[items.length];
+            long max = 0;
+            for (int i = 0; i < items.length; i++) {
+                ReadableZonedInterval interval = (ReadableZonedInterval) items[i];
+                starts[i] = interval.getStartMillis();
+                ends[i] = interval.getEndMillis();
+                max = Math.max(max, ends[i] - starts[i]);
+            }
+            maxDuration = max;
+        }
+
+        int size() {
+            return items.length;
+        }
+
+        /**
+         * @return the first index that may end after lo
+         */
+        int from(long lo) {
+            return lo == Long.MIN_VALUE ? 0 : lowerBound(lo - maxDuration);
+        }
+
+        /**
+         * @return the first index starting at or after hi
+         */
+        int to(long hi) {
+            return hi == Long.MAX_VALUE ? items.length : lowerBound(hi);
+        }
+
+        private int lowerBound(long key) {
+            int low = 0, high = starts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] < key) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+    }
+
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+
+/**
+ * Occupancy step function of a collection of intervals: the number of intervals containing each instant.
+ * <p>
+ * Built with a sweep line over the sorted start and end millis in O(n log n) (sorting is done
+ * with {@link Arrays#parallelSort(long[])} for large inputs). Intervals are half-open like
+ * {@link ZonedInterval}: an interval ending at {@code t} and another starting at {@code t}
+ * never count together, and zero duration intervals do not count at all.
+ * <p>
+ * The function is stored as the sorted instants where occupancy changes and the occupancy
+ * level from each of them until the next one. Occupancy is 0 before the first and after the last.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class ZonedIntervalOccupancy {
+
+    /**
+     * Input size from which endpoints are sorted in parallel by {@link #of(ZoneId, Collection)}.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final ZoneId zoneId;
+    private final long[] times;
+    private final int[] levels;
+    private final int peak;
+
+    private ZonedIntervalOccupancy(ZoneId zoneId, long[] times, int[] levels) {
+        this.zoneId = Objects.requireNonNull(zoneId, "zone cannot be null");
+        this.times = times;
+        this.levels = levels;
+        int max = 0;
+        for (int level : levels) {
+            if (level > max) max = level;
+        }
+        this.peak = max;
+    }
+
+    public ZoneId getZone() {
+        return zoneId;
+    }
+
+    /**
+     * @return the number of steps of the function
+     */
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * @return the instant where the occupancy changes to {@link #getLevel(int)}
+     */
+    public long getTimeMillis(int index) {
+        return times[index];
+    }
+
+    public int getLevel(int index) {
+        return levels[index];
+    }
+
+    /**
+     * @return the number of intervals containing the given instant
+     */
+    public int getAt(long millisInstant) {
+        int i = floor(millisInstant);
+        return i < 0 ? 0 : levels[i];
+    }
+
+    public int getAt(Instant instant) {
+        return getAt(instant.toEpochMilli());
+    }
+
+    public int getAt(ZonedDateTime instant) {
+        return getAt(instant.toInstant().toEpochMilli());
+    }
+
+    /**
+     * @return the maximum number of simultaneous intervals
+     */
+    public int getPeak() {
+        return peak;
+    }
+
+    /**
+     * @return the maximum number of simultaneous intervals within the given window
+     */
+    public int getPeak(ReadableZonedInterval window) {
+        long start = window.getStartMillis();
+        long end = window.getEndMillis();
+        if (start == end) return 0;
+        int max = 0;
+        for (int i = Math.max(floor(start), 0); i < times.length && times[i] < end; i++) {
+            if (levels[i] > max) max = levels[i];
+        }
+        return max;
+    }
+
+    /**
+     * @return the instants where at least {@code k} intervals are simultaneous
+     */
+    public ZonedIntervalSet atLeast(int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive: " + k);
+        long[] bounds = new long[times.length];
+        int n = 0;
+        boolean in = false;
+        for (int i = 0; i < times.length; i++) {
+            boolean now = levels[i] >= k;
+            if (now != in) {
+                bounds[n++] = times[i];
+                in = now;
+            }
+        }
+        return ZonedIntervalSet.wrap(zoneId, Arrays.copyOf(bounds, n));
+    }
+
+    public ZonedIntervalSet atLeast(int k, ReadableZonedInterval window) {
+        return atLeast(k).intersect(window);
+    }
+
+    /**
+     * @return the instants where more than {@code capacity} intervals are simultaneous
+     */
+    public ZonedIntervalSet exceeding(int capacity) {
+        return atLeast(capacity + 1);
+    }
+
+    private int floor(long millisInstant) {
+        int pos = Arrays.binarySearch(times, millisInstant);
+        return pos >= 0 ? pos : -pos - 2;
+    }
+
+    public static ZonedIntervalOccupancy of(ZoneId zoneId, Collection<? extends ReadableZonedInterval> intervals) {
+        return of(zoneId, intervals, intervals.size() >= PARALLEL_THRESHOLD);
+    }
+
+    public static ZonedIntervalOccupancy of(ZoneId zoneId, Collection<? extends ReadableZonedInterval> intervals, boolean parallel) {
+        int size = intervals.size();
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        int k = 0;
+        for (ReadableZonedInterval interval : intervals) {
+            starts[k] = interval.getStartMillis();
+            ends[k++] = interval.getEndMillis();
+        }
+        if (parallel) {
+            Arrays.parallelSort(starts, 0, k);
+            Arrays.parallelSort(ends, 0, k);
+        } else {
+            Arrays.sort(starts, 0, k);
+            Arrays.sort(ends, 0, k);
+        }
+        long[] times = new long[k << 1];
+        int[] levels = new int[k << 1];
+        int n = 0, level = 0;
+        for (int i = 0, j = 0; j < k; ) {
+            // net change of all the bounds at the next instant
+            long t = i < k && starts[i] < ends[j] ? starts[i] : ends[j];
+            int next = level;
+            for (; i < k && starts[i] == t; i++) next++;
+            for (; j < k && ends[j] == t; j++) next--;
+            if (next != level) {
+                times[n] = t;
+                levels[n++] = level = next;
+            }
+        }
+        return new ZonedIntervalOccupancy(zoneId, Arrays.copyOf(times, n), Arrays.copyOf(levels, n));
+    }
+
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Immutable, normalized set of intervals: sorted, non-overlapping and coalesced
+ * (abutting intervals are merged and zero duration intervals are dropped).
+ * <p>
+ * Bounds are kept in a single sorted {@code long[]} of epoch millis
+ * ({@code start0, end0, start1, end1, ...}) so that {@link #union(ZonedIntervalSet)},
+ * {@link #intersect(ZonedIntervalSet)}, {@link #subtract(ZonedIntervalSet)} and
+ * {@link #complement(ReadableZonedInterval)} are linear merges of primitive arrays.
+ * {@link ZonedInterval}s are only created when elements are read.
+ * <p>
+ * For example, free time is {@code openingHours.subtract(bookings)}.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class ZonedIntervalSet implements Iterable<ZonedInterval>, Serializable {
+
+    /**
+     * Serialization version.
+     */
+    private static final long serialVersionUID = -1817640539370716735L;
+
+    private static final long[] NO_BOUNDS = new long[0];
+
+    private static final int UNION = 0;
+    private static final int INTERSECT = 1;
+    private static final int SUBTRACT = 2;
+
+    private final ZoneId zoneId;
+    private final long[] bounds;
+
+    private ZonedIntervalSet(ZoneId zoneId, long[] bounds) {
+        this.zoneId = Objects.requireNonNull(zoneId, "zone cannot be null");
+        this.bounds = bounds;
+    }
+
+    public ZoneId getZone() {
+        return zoneId;
+    }
+
+    public int size() {
+        return bounds.length >> 1;
+    }
+
+    public boolean isEmpty() {
+        return bounds.length == 0;
+    }
+
+    public long getStartMillis(int index) {
+        return bounds[index << 1];
+    }
+
+    public long getEndMillis(int index) {
+        return bounds[(index << 1) + 1];
+    }
+
+    public ZonedInterval get(int index) {
+        return ZonedInterval.of(getStartMillis(index), getEndMillis(index), zoneId);
+    }
+
+    /**
+     * @return the sum of the durations of all the intervals, in milliseconds
+     */
+    public long toDurationMillis() {
+        long total = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            total += bounds[i + 1] - bounds[i];
+        }
+        return total;
+    }
+
+    /**
+     * Does one interval of this set contain the specified millisecond instant.
+     * Runs in O(log n).
+     */
+    public boolean contains(long millisInstant) {
+        int pos = Arrays.binarySearch(bounds, millisInstant);
+        // found on a start (even index) or strictly between a start and its end
+        return pos >= 0 ? (pos & 1) == 0 : ((-pos - 1) & 1) == 1;
+    }
+
+    /**
+     * Does one interval of this set contain the whole specified interval.
+     * A zero duration interval is contained if its instant is.
+     */
+    public boolean contains(ReadableZonedInterval zonedInterval) {
+        long start = zonedInterval.getStartMillis();
+        long end = zonedInterval.getEndMillis();
+        int pos = Arrays.binarySearch(bounds, start);
+        int i = pos >= 0 ? pos : -pos - 2;
+        // i is the last bound <= start: must be a start whose end is >= the other end
+        return i >= 0 && (i & 1) == 0 && start < bounds[i + 1] && end <= bounds[i + 1];
+    }
+
+    /**
+     * Does the specified interval overlap one interval of this set,
+     * as defined by {@link ZonedInterval#overlaps(ReadableZonedInterval)}.
+     */
+    public boolean overlaps(ReadableZonedInterval zonedInterval) {
+        long start = zonedInterval.getStartMillis();
+        long end = zonedInterval.getEndMillis();
+        int pos = Arrays.binarySearch(bounds, start);
+        // first bound strictly after start: its interval is the first one ending after start
+        int i = pos >= 0 ? pos + 1 : -pos - 1;
+        return i < bounds.length && bounds[i & ~1] < end;
+    }
+
+    public ZonedIntervalSet union(ZonedIntervalSet other) {
+        return combine(other, UNION);
+    }
+
+    public ZonedIntervalSet intersect(ZonedIntervalSet other) {
+        return combine(other, INTERSECT);
+    }
+
+    public ZonedIntervalSet subtract(ZonedIntervalSet other) {
+        return combine(other, SUBTRACT);
+    }
+
+    public ZonedIntervalSet union(ReadableZonedInterval zonedInterval) {
+        return union(of(zoneId, zonedInterval));
+    }
+
+    public ZonedIntervalSet intersect(ReadableZonedInterval zonedInterval) {
+        return intersect(of(zoneId, zonedInterval));
+    }
+
+    public ZonedIntervalSet subtract(ReadableZonedInterval zonedInterval) {
+        return subtract(of(zoneId, zonedInterval));
+    }
+
+    /**
+     * @return the parts of {@code bounds} not covered by this set
+     */
+    public ZonedIntervalSet complement(ReadableZonedInterval bounds) {
+        return of(zoneId, bounds).subtract(this);
+    }
+
+    /**
+     * @return the intervals of this set lasting at least the given duration
+     */
+    public ZonedIntervalSet withMinDuration(Duration duration) {
+        long min = duration.toMillis();
+        long[] out = new long[bounds.length];
+        int n = 0;
+        for (int i = 0; i < bounds.length; i += 2) {
+            if (bounds[i + 1] - bounds[i] >= min) {
+                out[n++] = bounds[i];
+                out[n++] = bounds[i + 1];
+            }
+        }
+        return n == bounds.length ? this : new ZonedIntervalSet(zoneId, Arrays.copyOf(out, n));
+    }
+
+    public ZonedIntervalSet withZone(ZoneId zone) {
+        if (this.zoneId.equals(zone)) return this;
+        return new ZonedIntervalSet(zone, bounds);
+    }
+
+    public List<ZonedInterval> toList() {
+        return new AbstractList<ZonedInterval>() {
+            @Override
+            public ZonedInterval get(int index) {
+                return ZonedIntervalSet.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return ZonedIntervalSet.this.size();
+            }
+        };
+    }
+
+    public Stream<ZonedInterval> stream() {
+        return toList().stream();
+    }
+
+    @Override
+    public Iterator<ZonedInterval> iterator() {
+        return toList().iterator();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ZonedIntervalSet that = (ZonedIntervalSet) o;
+        return zoneId.equals(that.zoneId) && Arrays.equals(bounds, that.bounds);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * zoneId.hashCode() + Arrays.hashCode(bounds);
+    }
+
+    @Override
+    public String toString() {
+        return toList().toString();
+    }
+
+    private ZonedIntervalSet combine(ZonedIntervalSet other, int op) {
+        long[] a = bounds;
+        long[] b = other.bounds;
+        long[] out = new long[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        boolean in = false;
+        while (i < a.length || j < b.length) {
+            long x;
+            if (j == b.length || i < a.length && a[i] < b[j]) {
+                x = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                x = b[j++];
+            } else {
+                x = a[i++];
+                j++;
+            }
+            // odd number of consumed bounds means we are inside an interval
+            boolean inA = (i & 1) == 1;
+            boolean inB = (j & 1) == 1;
+            boolean now = op == UNION ? inA || inB : op == INTERSECT ? inA && inB : inA && !inB;
+            if (now != in) {
+                out[n++] = x;
+                in = now;
+            }
+        }
+        return new ZonedIntervalSet(zoneId, n == out.length ? out : Arrays.copyOf(out, n));
+    }
+
+    /**
+     * Wraps bounds that are already sorted, strictly increasing and of even length.
+     */
+    static ZonedIntervalSet wrap(ZoneId zoneId, long[] bounds) {
+        return new ZonedIntervalSet(zoneId, bounds);
+    }
+
+    public static ZonedIntervalSet empty(ZoneId zoneId) {
+        return new ZonedIntervalSet(zoneId, NO_BOUNDS);
+    }
+
+    public static ZonedIntervalSet of(ZoneId zoneId, ReadableZonedInterval zonedInterval) {
+        long start = zonedInterval.getStartMillis();
+        long end = zonedInterval.getEndMillis();
+        return new ZonedIntervalSet(zoneId, start == end ? NO_BOUNDS : new long[]{start, end});
+    }
+
+    /**
+     * Builds a normalized set from unsorted, possibly overlapping intervals in O(n log n).
+     */
+    public static ZonedIntervalSet of(ZoneId zoneId, Collection<? extends ReadableZonedInterval> intervals) {
+        int size = intervals.size();
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        int k = 0;
+        for (ReadableZonedInterval interval : intervals) {
+            starts[k] = interval.getStartMillis();
+            ends[k++] = interval.getEndMillis();
+        }
+        return of(zoneId, starts, ends, k);
+    }
+
+    /**
+     * Builds a normalized set from parallel arrays of start and end millis.
+     * The arrays are sorted in place.
+     */
+    public static ZonedIntervalSet of(ZoneId zoneId, long[] starts, long[] ends, int length) {
+        Arrays.sort(starts, 0, length);
+        Arrays.sort(ends, 0, length);
+        long[] out = new long[length << 1];
+        int n = 0, depth = 0;
+        for (int i = 0, j = 0; j < length; ) {
+            // starts first on ties so that abutting intervals coalesce
+            if (i < length && starts[i] <= ends[j]) {
+                if (depth++ == 0) out[n++] = starts[i];
+                i++;
+            } else {
+                if (--depth == 0) {
+                    if (out[n - 1] == ends[j]) n--; // zero duration
+                    else out[n++] = ends[j];
+                }
+                j++;
+            }
+        }
+        return new ZonedIntervalSet(zoneId, n == out.length ? out : Arrays.copyOf(out, n));
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.guestful.jsr310.CompactZonedInterval;
+
+import java.time.ZoneId;
+
+/**
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public class CompactZonedIntervalSerializer extends Serializer<CompactZonedInterval> {
+
+    private final ZoneIdEncoding zones;
+
+    public CompactZonedIntervalSerializer() {
+        this(ZoneIdEncoding.string());
+    }
+
+    public CompactZonedIntervalSerializer(ZoneIdEncoding zones) {
+        this.zones = zones;
+        setImmutable(true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, CompactZonedInterval object) {
+        output.writeLong(object.getStartMillis(), true);
+        output.writeLong(object.getEndMillis(), true);
+        zones.write(kryo, output, object.getZone());
+    }
+
+    @Override
+    public CompactZonedInterval read(Kryo kryo, Input input, Class<CompactZonedInterval> type) {
+        long start = input.readLong(true);
+        long end = input.readLong(true);
+        ZoneId zone = zones.read(kryo, input);
+        return CompactZonedInterval.of(start, end, zone);
+    }
+}
@@ -23,21 +23,37 @@ import com.esotericsoftware.kryo.io.Output;
 import java.time.Duration;
 
 /**
+ * By default a duration is written as its total nanoseconds, which only covers about 292 years either way
+ * ({@link Duration#toNanos()} throws beyond). With {@code nanos = true} it is written as zigzag varint seconds and
+ * varint nanoseconds, like {@link InstantSerializer}, which covers any duration. Readers must use the same format.
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
 public class DurationSerializer extends Serializer<Duration> {
 
+    private final boolean nanos;
+
     public DurationSerializer() {
+        this(false);
+    }
+
+    public DurationSerializer(boolean nanos) {
+        this.nanos = nanos;
         setImmutable(true);
     }
 
     @Override
     public void write(Kryo kryo, Output output, Duration object) {
-        output.writeLong(object.toNanos(), true);
+        if (nanos) {
+            output.writeLong(object.getSeconds(), false);
+            output.writeInt(object.getNano(), true);
+        } else {
+            output.writeLong(object.toNanos(), true);
+        }
     }
 
     @Override
     public Duration read(Kryo kryo, Input input, Class<Duration> type) {
-        return Duration.ofNanos(input.readLong(true));
+        return nanos ? Duration.ofSeconds(input.readLong(false), input.readInt(true)) : Duration.ofNanos(input.readLong(true));
     }
 }
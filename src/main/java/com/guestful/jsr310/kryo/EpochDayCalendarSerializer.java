@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.guestful.jsr310.EpochDayCalendar;
+
+/**
+ * Writes the runs of consecutive marked days: their count, then the start of each run
+ * (relative to the end of the previous one) and its length.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public class EpochDayCalendarSerializer extends Serializer<EpochDayCalendar> {
+
+    @Override
+    public void write(Kryo kryo, Output output, EpochDayCalendar object) {
+        int runs = 0;
+        for (long d = object.nextMarked(Long.MIN_VALUE); d != EpochDayCalendar.NONE; d = object.nextMarked(object.nextUnmarked(d))) {
+            runs++;
+        }
+        output.writeInt(runs, true);
+        long previous = 0;
+        for (long d = object.nextMarked(Long.MIN_VALUE); d != EpochDayCalendar.NONE; ) {
+            long end = object.nextUnmarked(d);
+            output.writeLong(d - previous, false);
+            output.writeLong(end - d, true);
+            previous = end;
+            d = object.nextMarked(end);
+        }
+    }
+
+    @Override
+    public EpochDayCalendar read(Kryo kryo, Input input, Class<EpochDayCalendar> type) {
+        EpochDayCalendar calendar = new EpochDayCalendar();
+        int runs = input.readInt(true);
+        long previous = 0;
+        for (int i = 0; i < runs; i++) {
+            long start = previous + input.readLong(false);
+            long end = start + input.readLong(true);
+            calendar.markRange(start, end);
+            previous = end;
+        }
+        return calendar;
+    }
+
+    @Override
+    public EpochDayCalendar copy(Kryo kryo, EpochDayCalendar original) {
+        return new EpochDayCalendar(original);
+    }
+}
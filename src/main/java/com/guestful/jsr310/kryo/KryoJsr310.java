@@ -16,20 +16,96 @@
 package com.guestful.jsr310.kryo;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.guestful.jsr310.CompactZonedInterval;
+import com.guestful.jsr310.EpochDayCalendar;
 import com.guestful.jsr310.ZonedInterval;
 
 import java.time.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
+ * Kryo serializers for the java.time types and the types of this library.
+ * <p>
+ * {@link #addJsr310Serializers} adds them as default serializers: Kryo then writes the class name of each value.
+ * {@link #registerJsr310Serializers} registers them with fixed class IDs instead, written as a varint. The IDs are
+ * offsets from the first ID given (by default {@link #FIRST_ID}) and never change, new types being appended:
+ * <pre>
+ *  +0  ZonedInterval          +6  Period                 +12 ZoneId (region based)
+ *  +1  CompactZonedInterval   +7  EpochDayCalendar       +13 YearMonth
+ *  +2  LocalDate              +8  Instant                +14 Year
+ *  +3  ZonedDateTime          +9  LocalDateTime          +15 DayOfWeek
+ *  +4  Duration               +10 OffsetDateTime         +16 Month
+ *  +5  LocalTime              +11 ZoneOffset
+ * </pre>
+ * With {@code nanos = true}, ZonedDateTime and ZonedInterval are written with their nanoseconds instead of being
+ * truncated to milliseconds, and Duration as seconds and nanoseconds instead of a total of nanoseconds, which fails
+ * beyond about 292 years (see {@link DurationSerializer}). The other serializers are always lossless. Readers must use
+ * the same zone encoding and precision as writers.
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
 public class KryoJsr310 {
+
+    public static final int FIRST_ID = 100;
+
     public static void addJsr310Serializers(Kryo kryo) {
-        kryo.addDefaultSerializer(ZonedInterval.class, new ZonedIntervalSerializer());
-        kryo.addDefaultSerializer(LocalDate.class, new LocalDateSerializer());
-        kryo.addDefaultSerializer(ZonedDateTime.class, new ZonedDateTimeSerializer());
-        kryo.addDefaultSerializer(Duration.class, new DurationSerializer());
-        kryo.addDefaultSerializer(LocalTime.class, new LocalTimeSerializer());
-        kryo.addDefaultSerializer(Period.class, new PeriodSerializer());
+        addJsr310Serializers(kryo, ZoneIdEncoding.string());
+    }
+
+    /**
+     * Registers the serializers, writing the zones of zoned values with the given encoding (i.e.
+     * {@link ZoneIdEncoding#dictionary(String...)} to write them as varint indexes). Readers must use the same encoding.
+     */
+    public static void addJsr310Serializers(Kryo kryo, ZoneIdEncoding zones) {
+        addJsr310Serializers(kryo, zones, false);
+    }
+
+    public static void addJsr310Serializers(Kryo kryo, ZoneIdEncoding zones, boolean nanos) {
+        for (Map.Entry<Class<?>, Serializer<?>> entry : serializers(zones, nanos).entrySet()) {
+            kryo.addDefaultSerializer(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public static void registerJsr310Serializers(Kryo kryo) {
+        registerJsr310Serializers(kryo, FIRST_ID, ZoneIdEncoding.string(), false);
+    }
+
+    public static void registerJsr310Serializers(Kryo kryo, int firstId, ZoneIdEncoding zones, boolean nanos) {
+        int id = firstId;
+        for (Map.Entry<Class<?>, Serializer<?>> entry : serializers(zones, nanos).entrySet()) {
+            // ZoneId is abstract: register its implementation for region based zones
+            Class<?> type = entry.getKey() == ZoneId.class ? ZoneId.of("Europe/Paris").getClass() : entry.getKey();
+            kryo.register(type, entry.getValue(), id++);
+        }
+        // default serializers still apply to the types only used through a parent class
+        kryo.addDefaultSerializer(ZoneId.class, new ZoneIdSerializer(zones));
+    }
+
+    /**
+     * @return The serializers in the order of their registration IDs. ZoneOffset comes before ZoneId because the first
+     * default serializer matching a class is used.
+     */
+    private static Map<Class<?>, Serializer<?>> serializers(ZoneIdEncoding zones, boolean nanos) {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(ZonedInterval.class, new ZonedIntervalSerializer(zones, nanos));
+        serializers.put(CompactZonedInterval.class, new CompactZonedIntervalSerializer(zones));
+        serializers.put(LocalDate.class, new LocalDateSerializer());
+        serializers.put(ZonedDateTime.class, new ZonedDateTimeSerializer(zones, nanos));
+        serializers.put(Duration.class, new DurationSerializer(nanos));
+        serializers.put(LocalTime.class, new LocalTimeSerializer());
+        serializers.put(Period.class, new PeriodSerializer());
+        serializers.put(EpochDayCalendar.class, new EpochDayCalendarSerializer());
+        serializers.put(Instant.class, new InstantSerializer());
+        serializers.put(LocalDateTime.class, new LocalDateTimeSerializer());
+        serializers.put(OffsetDateTime.class, new OffsetDateTimeSerializer());
+        serializers.put(ZoneOffset.class, new ZoneOffsetSerializer());
+        serializers.put(ZoneId.class, new ZoneIdSerializer(zones));
+        serializers.put(YearMonth.class, new YearMonthSerializer());
+        serializers.put(Year.class, new YearSerializer());
+        serializers.put(DayOfWeek.class, new DayOfWeekSerializer());
+        serializers.put(Month.class, new MonthSerializer());
+        return serializers;
     }
 }
@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public class OffsetDateTimeSerializer extends Serializer<OffsetDateTime> {
+
+    public OffsetDateTimeSerializer() {
+        setImmutable(true);
+    }
+
+    @Override
+    public void write(Kryo kryo, Output output, OffsetDateTime object) {
+        output.writeInt(object.getYear(), true);
+        output.writeInt(object.getMonthValue(), true);
+        output.writeInt(object.getDayOfMonth(), true);
+        output.writeInt(object.getHour(), true);
+        output.writeInt(object.getMinute(), true);
+        output.writeInt(object.getSecond(), true);
+        output.writeInt(object.getNano(), true);
+        output.writeInt(object.getOffset().getTotalSeconds(), false);
+    }
+
+    @Override
+    public OffsetDateTime read(Kryo kryo, Input input, Class<OffsetDateTime> type) {
+        int year = input.readInt(true);
+        int month = input.readInt(true);
+        int day = input.readInt(true);
+        int hours = input.readInt(true);
+        int mins = input.readInt(true);
+        int secs = input.readInt(true);
+        int nanos = input.readInt(true);
+        ZoneOffset offset = ZoneOffset.ofTotalSeconds(input.readInt(false));
+        return OffsetDateTime.of(year, month, day, hours, mins, secs, nanos, offset);
+    }
+}
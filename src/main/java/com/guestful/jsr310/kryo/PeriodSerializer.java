@@ -16,6 +16,7 @@
 package com.guestful.jsr310.kryo;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Serializer;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
@@ -23,21 +24,87 @@ import com.esotericsoftware.kryo.io.Output;
 import java.time.Period;
 
 /**
+ * Writes periods in a compact binary form, starting with a tag byte:
+ * <ul>
+ * <li>{@code 1uuaaaaa}: one byte period, with unit {@code uu} (days, weeks, months, years) in the bits 6-5 and an
+ * amount from 0 to 31 in the bits 4-0, i.e. P1D, P2W, P6M or P1Y</li>
+ * <li>{@code 0x01}: years, months and days as three zigzag varints</li>
+ * <li>{@code 'P'}: legacy format, written before as the ISO string ({@link Period#toString()}). Kryo writes such
+ * ASCII strings as their characters, the last one flagged with its high bit, so the first byte is always 'P'.</li>
+ * </ul>
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
 public class PeriodSerializer extends Serializer<Period> {
 
+    private static final int SHORT = 0x80;
+    private static final int VARINT = 0x01;
+    private static final int LEGACY = 'P';
+    private static final int DAYS = 0;
+    private static final int WEEKS = 1;
+    private static final int MONTHS = 2;
+    private static final int YEARS = 3;
+    private static final int MAX_SHORT = 31;
+
     public PeriodSerializer() {
         setImmutable(true);
     }
 
     @Override
     public void write(Kryo kryo, Output output, Period object) {
-        output.writeString(object.toString());
+        int years = object.getYears();
+        int months = object.getMonths();
+        int days = object.getDays();
+        if (years == 0 && months == 0 && days >= 0) {
+            if (days <= MAX_SHORT) {
+                output.writeByte(SHORT | DAYS << 5 | days);
+                return;
+            }
+            if (days % 7 == 0 && days / 7 <= MAX_SHORT) {
+                output.writeByte(SHORT | WEEKS << 5 | days / 7);
+                return;
+            }
+        } else if (years == 0 && days == 0 && months > 0 && months <= MAX_SHORT) {
+            output.writeByte(SHORT | MONTHS << 5 | months);
+            return;
+        } else if (months == 0 && days == 0 && years > 0 && years <= MAX_SHORT) {
+            output.writeByte(SHORT | YEARS << 5 | years);
+            return;
+        }
+        output.writeByte(VARINT);
+        output.writeInt(years, false);
+        output.writeInt(months, false);
+        output.writeInt(days, false);
     }
 
     @Override
     public Period read(Kryo kryo, Input input, Class<Period> type) {
-        return Period.parse(input.readString());
+        int tag = input.readByte() & 0xFF;
+        if ((tag & SHORT) != 0) {
+            int amount = tag & MAX_SHORT;
+            switch (tag >> 5 & 3) {
+                case DAYS:
+                    return Period.ofDays(amount);
+                case WEEKS:
+                    return Period.ofWeeks(amount);
+                case MONTHS:
+                    return Period.ofMonths(amount);
+                default:
+                    return Period.ofYears(amount);
+            }
+        }
+        if (tag == VARINT) {
+            return Period.of(input.readInt(false), input.readInt(false), input.readInt(false));
+        }
+        if (tag == LEGACY) {
+            StringBuilder iso = new StringBuilder(16).append('P');
+            int b;
+            do {
+                b = input.readByte();
+                iso.append((char) (b & 0x7F));
+            } while ((b & 0x80) == 0);
+            return Period.parse(iso);
+        }
+        throw new KryoException("Unknown Period encoding: " + tag);
     }
 }
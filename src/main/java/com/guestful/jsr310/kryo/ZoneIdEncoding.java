@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.ObjectMap;
+import com.guestful.jsr310.ZoneRegistry;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How zone ids are written by the serializers of zoned values ({@link ZonedDateTimeSerializer},
+ * {@link ZonedIntervalSerializer}, {@link CompactZonedIntervalSerializer}).
+ * <ul>
+ * <li>{@link #string()}: the zone id string, for each value. This is the default and historical format.</li>
+ * <li>{@link #dictionary(String...)}: a varint index. Index 0 is followed by the zone id string the first time
+ * a zone is seen in an object graph, which defines the next index. The zones given as parameter form a stable table
+ * defined for all graphs: readers and writers must use the same list, in the same order, and new zones can only be
+ * appended to it.</li>
+ * </ul>
+ * The dictionary lives in the Kryo graph context, so it spans one top-level {@code writeObject} /
+ * {@code readObject} call (or more when auto reset is disabled). Read zones are taken from {@link ZoneRegistry}, so
+ * they are interned. Both formats are not compatible: the same encoding must be used to read and write.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class ZoneIdEncoding {
+
+    private static final ZoneIdEncoding STRING = new ZoneIdEncoding(null);
+
+    private final ZoneId[] table;
+    private final Map<ZoneId, Integer> indexes;
+
+    private ZoneIdEncoding(ZoneId[] table) {
+        this.table = table;
+        this.indexes = new HashMap<>();
+        if (table != null) {
+            for (int i = 0; i < table.length; i++) {
+                indexes.put(table[i], i);
+            }
+        }
+    }
+
+    public static ZoneIdEncoding string() {
+        return STRING;
+    }
+
+    public static ZoneIdEncoding dictionary(String... stableZoneIds) {
+        ZoneId[] table = new ZoneId[stableZoneIds.length];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = ZoneRegistry.of(stableZoneIds[i]);
+        }
+        return new ZoneIdEncoding(table);
+    }
+
+    public void write(Kryo kryo, Output output, ZoneId zone) {
+        if (table == null) {
+            output.writeString(zone.getId());
+            return;
+        }
+        Integer index = indexes.get(zone);
+        if (index != null) {
+            output.writeInt(index + 1, true);
+            return;
+        }
+        @SuppressWarnings("unchecked") ObjectMap<Object, Object> context = kryo.getGraphContext();
+        Written written = (Written) context.get(this);
+        if (written == null) {
+            written = new Written();
+            context.put(this, written);
+        }
+        index = written.indexes.get(zone);
+        if (index != null) {
+            output.writeInt(index + 1, true);
+        } else {
+            written.indexes.put(zone, table.length + written.indexes.size());
+            output.writeInt(0, true);
+            output.writeString(zone.getId());
+        }
+    }
+
+    public ZoneId read(Kryo kryo, Input input) {
+        if (table == null) return ZoneRegistry.of(input.readString());
+        int index = input.readInt(true) - 1;
+        if (index >= 0 && index < table.length) return table[index];
+        @SuppressWarnings("unchecked") ObjectMap<Object, Object> context = kryo.getGraphContext();
+        Read read = (Read) context.get(table);
+        if (read == null) {
+            read = new Read();
+            context.put(table, read);
+        }
+        if (index == -1) {
+            ZoneId zone = ZoneRegistry.of(input.readString());
+            read.zones.add(zone);
+            return zone;
+        }
+        // negative values come from a varint overflowing an int
+        int defined = index - table.length;
+        if (index < -1 || defined >= read.zones.size()) {
+            throw new KryoException("Unknown zone index: " + (index + 1) + " (" + table.length + " stable zones, " + read.zones.size() + " defined)");
+        }
+        return read.zones.get(defined);
+    }
+
+    /**
+     * Zones defined while writing the current graph, stored in the graph context under this encoding.
+     */
+    private static final class Written {
+        final Map<ZoneId, Integer> indexes = new HashMap<>();
+    }
+
+    /**
+     * Zones defined while reading the current graph, stored in the graph context under the stable table.
+     */
+    private static final class Read {
+        final List<ZoneId> zones = new ArrayList<>();
+    }
+}
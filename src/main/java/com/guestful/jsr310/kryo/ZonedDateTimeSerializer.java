@@ -25,24 +25,45 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
 /**
+ * Writes the instant in milliseconds and the zone. The lossless variant ({@code nanos = true}) writes the epoch
+ * seconds and the nanoseconds instead: both formats are not compatible.
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
 public class ZonedDateTimeSerializer extends Serializer<ZonedDateTime> {
 
+    private final ZoneIdEncoding zones;
+    private final boolean nanos;
+
     public ZonedDateTimeSerializer() {
+        this(ZoneIdEncoding.string());
+    }
+
+    public ZonedDateTimeSerializer(ZoneIdEncoding zones) {
+        this(zones, false);
+    }
+
+    public ZonedDateTimeSerializer(ZoneIdEncoding zones, boolean nanos) {
+        this.zones = zones;
+        this.nanos = nanos;
         setImmutable(true);
     }
 
     @Override
     public void write(Kryo kryo, Output output, ZonedDateTime object) {
-        output.writeLong(object.toInstant().toEpochMilli(), true);
-        output.writeString(object.getZone().getId());
+        if (nanos) {
+            output.writeLong(object.toEpochSecond(), false);
+            output.writeInt(object.getNano(), true);
+        } else {
+            output.writeLong(object.toInstant().toEpochMilli(), true);
+        }
+        zones.write(kryo, output, object.getZone());
     }
 
     @Override
     public ZonedDateTime read(Kryo kryo, Input input, Class<ZonedDateTime> type) {
-        long time = input.readLong(true);
-        String tz = input.readString();
-        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.of(tz));
+        Instant instant = nanos ? Instant.ofEpochSecond(input.readLong(false), input.readInt(true)) : Instant.ofEpochMilli(input.readLong(true));
+        ZoneId zone = zones.read(kryo, input);
+        return ZonedDateTime.ofInstant(instant, zone);
     }
 }
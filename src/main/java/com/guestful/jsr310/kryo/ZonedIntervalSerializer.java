@@ -21,29 +21,58 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.guestful.jsr310.ZonedInterval;
 
+import java.time.Instant;
 import java.time.ZoneId;
 
 /**
+ * Writes the bounds in milliseconds and the zone. The lossless variant ({@code nanos = true}) writes the epoch
+ * seconds and the nanoseconds of each bound instead: both formats are not compatible.
+ *
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
  */
 public class ZonedIntervalSerializer extends Serializer<ZonedInterval> {
 
+    private final ZoneIdEncoding zones;
+    private final boolean nanos;
+
     public ZonedIntervalSerializer() {
+        this(ZoneIdEncoding.string());
+    }
+
+    public ZonedIntervalSerializer(ZoneIdEncoding zones) {
+        this(zones, false);
+    }
+
+    public ZonedIntervalSerializer(ZoneIdEncoding zones, boolean nanos) {
+        this.zones = zones;
+        this.nanos = nanos;
         setImmutable(true);
     }
 
     @Override
     public void write(Kryo kryo, Output output, ZonedInterval object) {
-        output.writeLong(object.getStartMillis(), true);
-        output.writeLong(object.getEndMillis(), true);
-        output.writeString(object.getZone().getId());
+        if (nanos) {
+            output.writeLong(object.getStart().toEpochSecond(), false);
+            output.writeInt(object.getStart().getNano(), true);
+            output.writeLong(object.getEnd().toEpochSecond(), false);
+            output.writeInt(object.getEnd().getNano(), true);
+        } else {
+            output.writeLong(object.getStartMillis(), true);
+            output.writeLong(object.getEndMillis(), true);
+        }
+        zones.write(kryo, output, object.getZone());
     }
 
     @Override
     public ZonedInterval read(Kryo kryo, Input input, Class<ZonedInterval> type) {
+        if (nanos) {
+            Instant start = Instant.ofEpochSecond(input.readLong(false), input.readInt(true));
+            Instant end = Instant.ofEpochSecond(input.readLong(false), input.readInt(true));
+            return ZonedInterval.of(start, end, zones.read(kryo, input));
+        }
         long start = input.readLong(true);
         long end = input.readLong(true);
-        String tz = input.readString();
-        return ZonedInterval.of(start, end, ZoneId.of(tz));
+        ZoneId zone = zones.read(kryo, input);
+        return ZonedInterval.of(start, end, zone);
     }
 }
@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310;
+
+import java.time.Clock;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Throughput of {@link DelegatingClock#instant()} compared to the system clock, with and without an override
+ * active on another thread.
+ * <p>
+ * Not a unit test: run its {@link #main(String[])} method, i.e. from the IDE.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class DelegatingClockBenchmark {
+
+    private static final long CALLS = 20_000_000L;
+
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        DelegatingClock clock = new DelegatingClock(Clock.systemUTC());
+        for (int threads : new int[]{1, 4}) {
+            System.out.printf("threads=%d systemUTC %.1f ns/op, DelegatingClock %.1f ns/op%n", threads, run(Clock.systemUTC(), threads), run(clock, threads));
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        Thread overriding = new Thread(() -> clock.runWithClock(Clock.systemUTC(), () -> {
+            started.countDown();
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        overriding.start();
+        started.await();
+        System.out.printf("threads=4 DelegatingClock, override active on another thread %.1f ns/op%n", run(clock, 4));
+        done.countDown();
+        overriding.join();
+    }
+
+    /**
+     * @return the average time of a call, in nanoseconds, measured after a warm-up round
+     */
+    private static double run(Clock clock, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            double nanos = 0;
+            for (int round = 0; round < 2; round++) {
+                long start = System.nanoTime();
+                Future<?>[] futures = new Future<?>[threads];
+                for (int i = 0; i < threads; i++) {
+                    futures[i] = executor.submit(() -> {
+                        long sum = 0;
+                        for (long n = 0; n < CALLS; n++) sum += clock.instant().getNano();
+                        sink = sum;
+                    });
+                }
+                for (Future<?> future : futures) future.get();
+                nanos = (System.nanoTime() - start) / (double) CALLS;
+            }
+            return nanos;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+}
@@ -15,13 +15,56 @@
  */
 package com.guestful.jsr310;
 
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryo.Serializer;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.guestful.jsr310.kryo.KryoJsr310;
+import com.guestful.jsr310.kryo.PeriodSerializer;
+import com.guestful.jsr310.kryo.ZoneIdEncoding;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.Period;
+import java.time.Year;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /**
  * @author Mathieu Carbou (mathieu.carbou@gmail.com)
@@ -33,4 +76,792 @@ public final class Jsr310Test {
         assertEquals("11:00", Jsr310Extensions.roundUpMinutes(LocalTime.of(10, 45), 30).toString());
         assertEquals("10:30", Jsr310Extensions.roundUpMinutes(LocalTime.of(10, 15), 30).toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void compactZonedInterval() throws Exception {
+        ZoneId zone = ZoneId.of("America/Montreal");
+        ZonedDateTime nine = ZonedDateTime.of(2014, 3, 9, 9, 0, 0, 0, zone);
+        ZonedInterval i = ZonedInterval.of(nine, nine.plusHours(1));
+        CompactZonedInterval c = i.toCompact();
+        assertEquals(i.toString(), c.toString());
+        assertEquals(i.getStart(), c.getStart());
+        assertEquals(i, c.toZonedInterval());
+        ZonedInterval before = ZonedInterval.of(nine.minusHours(1), nine);
+        assertFalse(c.overlaps(before));
+        assertTrue(c.abuts(before));
+        assertTrue(i.overlaps(CompactZonedInterval.of(nine.plusMinutes(30), nine.plusHours(2))));
+        assertEquals(CompactZonedInterval.of(nine.plusHours(1), nine.plusHours(2)), c.gap(ZonedInterval.of(nine.plusHours(2), nine.plusHours(3))));
+        assertTrue(c.contains(nine.toInstant().toEpochMilli()));
+        assertFalse(c.contains(nine.plusHours(1)));
+    }
+
+    @Test
+    public void zonedIntervalIndex() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        Random random = new Random(1);
+        List<CompactZonedInterval> all = new ArrayList<>();
+        ZonedIntervalIndex<CompactZonedInterval> index = new ZonedIntervalIndex<>();
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt(100_000);
+            CompactZonedInterval interval = CompactZonedInterval.of(start, start + random.nextInt(500), zone);
+            all.add(interval);
+            index.add(interval);
+        }
+        for (int i = 0; i < 500; i++) {
+            index.remove(all.remove(random.nextInt(all.size())));
+        }
+        assertEquals(all.size(), index.size());
+        for (int i = 0; i < 200; i++) {
+            long start = random.nextInt(100_000);
+            CompactZonedInterval q = CompactZonedInterval.of(start, start + random.nextInt(300), zone);
+            List<CompactZonedInterval> expected = all.stream().filter(q::overlaps).collect(Collectors.toList());
+            List<CompactZonedInterval> actual = index.overlapping(q);
+            assertEquals(expected.size(), actual.size());
+            assertTrue(actual.containsAll(expected));
+            assertEquals(!expected.isEmpty(), index.conflicts(q));
+            assertEquals(all.stream().filter(in -> in.contains(start)).count(), index.containing(start).size());
+        }
+        ZonedIntervalIndex<CompactZonedInterval> abutting = new ZonedIntervalIndex<>();
+        abutting.add(CompactZonedInterval.of(0, 10, zone));
+        assertFalse(abutting.conflicts(CompactZonedInterval.of(10, 20, zone)));
+        assertFalse(abutting.conflicts(CompactZonedInterval.of(0, 0, zone)));
+        assertTrue(abutting.conflicts(CompactZonedInterval.of(5, 5, zone)));
+        assertTrue(abutting.containing(10).isEmpty());
+    }
+
+    @Test
+    public void zonedIntervalSet() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        ZonedIntervalSet open = ZonedIntervalSet.of(zone, Arrays.asList(
+            CompactZonedInterval.of(100, 200, zone),
+            CompactZonedInterval.of(50, 60, zone),
+            CompactZonedInterval.of(60, 70, zone),
+            CompactZonedInterval.of(150, 250, zone),
+            CompactZonedInterval.of(300, 300, zone)));
+        assertEquals(2, open.size());
+        assertEquals(50, open.getStartMillis(0));
+        assertEquals(70, open.getEndMillis(0));
+        assertEquals(100, open.getStartMillis(1));
+        assertEquals(250, open.getEndMillis(1));
+        ZonedIntervalSet booked = ZonedIntervalSet.of(zone, Arrays.asList(
+            CompactZonedInterval.of(0, 55, zone),
+            CompactZonedInterval.of(120, 130, zone),
+            CompactZonedInterval.of(240, 400, zone)));
+        ZonedIntervalSet free = open.subtract(booked);
+        assertEquals(ZonedIntervalSet.of(zone, Arrays.asList(
+            CompactZonedInterval.of(55, 70, zone),
+            CompactZonedInterval.of(100, 120, zone),
+            CompactZonedInterval.of(130, 240, zone))), free);
+        assertEquals(free.toDurationMillis() + open.intersect(booked).toDurationMillis(), open.toDurationMillis());
+        assertEquals(ZonedIntervalSet.of(zone, CompactZonedInterval.of(0, 400, zone)), open.union(booked).union(CompactZonedInterval.of(70, 100, zone)));
+        ZonedIntervalSet closed = open.complement(CompactZonedInterval.of(0, 300, zone));
+        assertEquals(3, closed.size());
+        assertTrue(closed.contains(70));
+        assertFalse(closed.contains(100));
+        assertTrue(open.contains(CompactZonedInterval.of(100, 250, zone)));
+        assertFalse(open.contains(CompactZonedInterval.of(60, 100, zone)));
+        assertTrue(open.overlaps(CompactZonedInterval.of(69, 100, zone)));
+        assertFalse(open.overlaps(CompactZonedInterval.of(70, 100, zone)));
+        assertFalse(open.overlaps(CompactZonedInterval.of(100, 100, zone)));
+        assertTrue(open.overlaps(CompactZonedInterval.of(101, 101, zone)));
+    }
+
+    @Test
+    public void zonedIntervalArray() throws Exception {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+        ZoneId montreal = ZoneId.of("America/Montreal");
+        Random random = new Random(2);
+        List<ZonedInterval> intervals = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            long start = random.nextInt(10_000);
+            intervals.add(ZonedInterval.of(start, start + random.nextInt(200), i % 3 == 0 ? montreal : paris));
+        }
+        ZonedIntervalArray array = ZonedIntervalArray.of(intervals);
+        assertEquals(intervals, array.toList());
+        CompactZonedInterval window = CompactZonedInterval.of(4_000, 5_000, paris);
+        BitSet overlaps = array.overlapsAll(window);
+        BitSet contains = array.containsAll(4_000);
+        for (int i = 0; i < intervals.size(); i++) {
+            assertEquals(intervals.get(i).overlaps(window), overlaps.get(i));
+            assertEquals(intervals.get(i).contains(4_000), contains.get(i));
+            assertEquals(intervals.get(i).toDurationMillis(), array.durations()[i]);
+        }
+    }
+
+    @Test
+    public void zonedIntervalArrayUnindexedZones() throws Exception {
+        ZoneId paris = ZoneId.of("Europe/Paris");
+        ZoneId irregular = ZoneId.of("+01:23:45");
+        // local mean time of Paris, used before 1891
+        ZoneId lmt = ZoneOffset.ofHoursMinutesSeconds(0, 9, 21);
+        List<ZonedInterval> intervals = Arrays.asList(
+            ZonedInterval.of(0, 100, irregular),
+            ZonedInterval.of(50, 150, paris),
+            ZonedInterval.of(100, 200, lmt),
+            ZonedInterval.of(150, 250, irregular));
+        ZonedIntervalArray array = ZonedIntervalArray.of(intervals);
+        assertEquals(intervals, array.toList());
+        assertEquals(irregular, array.getZone(0));
+        assertEquals(paris, array.getZone(1));
+        assertEquals(lmt, array.get(2).getZone());
+        assertEquals(irregular, array.getZone(3));
+    }
+
+    @Test
+    public void zonedIntervalOccupancy() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        ZonedIntervalOccupancy occupancy = ZonedIntervalOccupancy.of(zone, Arrays.asList(
+            CompactZonedInterval.of(0, 100, zone),
+            CompactZonedInterval.of(50, 150, zone),
+            CompactZonedInterval.of(100, 200, zone),
+            CompactZonedInterval.of(60, 70, zone),
+            CompactZonedInterval.of(80, 80, zone)));
+        assertEquals(3, occupancy.getPeak());
+        assertEquals(2, occupancy.getAt(100));
+        assertEquals(1, occupancy.getAt(0));
+        assertEquals(0, occupancy.getAt(200));
+        assertEquals(2, occupancy.getAt(80));
+        assertEquals(2, occupancy.getPeak(CompactZonedInterval.of(70, 200, zone)));
+        assertEquals(ZonedIntervalSet.of(zone, CompactZonedInterval.of(60, 70, zone)), occupancy.exceeding(2));
+        assertEquals(ZonedIntervalSet.of(zone, CompactZonedInterval.of(50, 150, zone)), occupancy.atLeast(2));
+        assertEquals(ZonedIntervalSet.of(zone, CompactZonedInterval.of(0, 200, zone)), occupancy.atLeast(1));
+    }
+
+    @Test
+    public void slots() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        // DST starts on 2014-03-30 at 02:00 (to 03:00)
+        ZonedDateTime start = ZonedDateTime.of(2014, 3, 30, 1, 7, 0, 0, zone);
+        ZonedInterval interval = ZonedInterval.of(start, start.plusHours(2));
+        List<ZonedDateTime> slots = Jsr310Extensions.slots(interval, 30).collect(Collectors.toList());
+        assertEquals(4, slots.size());
+        assertEquals("01:30", slots.get(0).toLocalTime().toString());
+        assertEquals("03:00", slots.get(1).toLocalTime().toString());
+        assertEquals("04:00", slots.get(3).toLocalTime().toString());
+        assertEquals(slots, Jsr310Extensions.slots(interval, 30).parallel().collect(Collectors.toList()));
+        assertEquals(8, Jsr310Extensions.slotMillis(interval, Duration.ofMinutes(15)).count());
+        assertEquals(1000, Jsr310Extensions.slotMillis(CompactZonedInterval.of(0, 1000, zone), Duration.ofMillis(1)).parallel().distinct().count());
+    }
+
+    @Test
+    public void gaps() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        ZonedDateTime noon = ZonedDateTime.of(2014, 6, 1, 12, 0, 0, 0, zone);
+        ZonedInterval service = ZonedInterval.of(noon, noon.plusHours(3));
+        List<ZonedInterval> bookings = Arrays.asList(
+            ZonedInterval.of(noon.plusMinutes(90), noon.plusMinutes(150)),
+            ZonedInterval.of(noon.plusMinutes(20), noon.plusMinutes(80)),
+            ZonedInterval.of(noon.minusMinutes(30), noon.plusMinutes(10)));
+        assertEquals(Arrays.asList(
+            ZonedInterval.of(noon.plusMinutes(10), noon.plusMinutes(20)),
+            ZonedInterval.of(noon.plusMinutes(80), noon.plusMinutes(90)),
+            ZonedInterval.of(noon.plusMinutes(150), noon.plusMinutes(180))), Jsr310Extensions.gaps(bookings, service, Duration.ofMinutes(10)));
+        assertEquals(1, Jsr310Extensions.gaps(bookings, service, Duration.ofMinutes(11)).size());
+        Map<Boolean, List<ZonedInterval>> byTable = Jsr310Extensions.gaps(bookings, b -> b.getStart().getMinute() == 30, service, Duration.ofMinutes(30));
+        assertEquals(Arrays.asList(
+            ZonedInterval.of(noon.plusMinutes(10), noon.plusMinutes(90)),
+            ZonedInterval.of(noon.plusMinutes(150), noon.plusMinutes(180))), byTable.get(true));
+        assertEquals(Arrays.asList(ZonedInterval.of(noon.plusMinutes(80), noon.plusMinutes(180))), byTable.get(false));
+    }
+
+    @Test
+    public void zonedIntervalJoin() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        Random random = new Random(3);
+        List<CompactZonedInterval> shifts = new ArrayList<>();
+        List<CompactZonedInterval> bookings = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long start = random.nextInt(1_000_000);
+            (i % 2 == 0 ? shifts : bookings).add(CompactZonedInterval.of(start, start + random.nextInt(i % 100 == 0 ? 5000 : 100), zone));
+        }
+        Set<String> expected = new HashSet<>();
+        ZonedIntervalIndex<CompactZonedInterval> index = new ZonedIntervalIndex<>(bookings);
+        for (CompactZonedInterval shift : shifts) {
+            for (CompactZonedInterval booking : index.overlapping(shift)) {
+                expected.add(shift + " " + booking);
+            }
+        }
+        Set<String> sequential = new HashSet<>();
+        ZonedIntervalJoin.join(shifts, bookings, (a, b) -> sequential.add(a + " " + b));
+        assertEquals(expected, sequential);
+        AtomicInteger count = new AtomicInteger();
+        Set<String> parallel = ConcurrentHashMap.newKeySet();
+        ZonedIntervalJoin.parallelJoin(shifts, bookings, new ForkJoinPool(4), (a, b) -> {
+            count.incrementAndGet();
+            parallel.add(a + " " + b);
+        });
+        assertEquals(expected, parallel);
+        assertEquals(count.get(), parallel.size());
+    }
+
+    @Test
+    public void dateTimeFormatterCache() throws Exception {
+        DateTimeFormatterCache cache = new DateTimeFormatterCache(2);
+        cache.warmUp(Arrays.asList("yyyy-MM-dd", "HH:mm"), Locale.FRENCH);
+        assertSame(cache.get("HH:mm", Locale.FRENCH), cache.get("HH:mm", Locale.FRENCH));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        cache.get("HH:mm", Locale.ENGLISH);
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        // the pattern in use is kept, the one never used again is evicted
+        cache.get("HH:mm", Locale.FRENCH);
+        assertEquals(3, cache.getHitCount());
+        cache.get("yyyy", Locale.FRENCH);
+        assertEquals(2, cache.getEvictionCount());
+        cache.get("HH:mm", Locale.FRENCH);
+        assertEquals(4, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        // the hand keeps its position between evictions: the entry inserted last is not the next victim
+        DateTimeFormatterCache ring = new DateTimeFormatterCache(3);
+        ring.warmUp(Arrays.asList("A", "H", "D"), Locale.ROOT);
+        ring.get("A", Locale.ROOT);
+        ring.get("E", Locale.ROOT);
+        ring.get("A", Locale.ROOT);
+        ring.get("G", Locale.ROOT);
+        long misses = ring.getMissCount();
+        ring.get("A", Locale.ROOT);
+        ring.get("E", Locale.ROOT);
+        ring.get("G", Locale.ROOT);
+        assertEquals(misses, ring.getMissCount());
+        ZonedDateTime dt = ZonedDateTime.of(2014, 6, 1, 12, 0, 0, 0, ZoneId.of("Europe/Paris"));
+        assertEquals("juin", Jsr310Extensions.format(dt, "MMMM", Locale.FRENCH));
+        assertEquals("June", Jsr310Extensions.toString(dt, "MMMM", Locale.ENGLISH));
+    }
+
+    @Test
+    public void parse() throws Exception {
+        Clock clock = Clock.system(ZoneId.of("America/Montreal"));
+        for (String s : Arrays.asList("2014-06", "2014-06-01", "2014-06-01T10:15", "2014-06-01T10:15:30", "2014-06-01T10:15:30.5",
+            "2014-06-01T10:15:30.123456789", "2014-06-01T10:15Z", "2014-06-01T10:15:30.25+02:00", "2014-06-01T10:15:30-04:30:15", "2014-06-01t10:15Z")) {
+            ZonedDateTime expected;
+            if (s.length() == 7) expected = LocalDate.parse(s + "-01").atStartOfDay(clock.getZone());
+            else if (s.length() == 10) expected = LocalDate.parse(s).atStartOfDay(clock.getZone());
+            else if (s.endsWith("Z") || s.lastIndexOf('-') > 7 || s.contains("+")) expected = OffsetDateTime.parse(s).atZoneSameInstant(clock.getZone());
+            else expected = LocalDateTime.parse(s).atZone(clock.getZone());
+            assertEquals(s, expected, Jsr310Extensions.parse(clock, s));
+            assertEquals(s, expected, Jsr310Extensions.parse(clock, "[" + s + "]", 1, s.length() + 1));
+        }
+        for (String s : Arrays.asList("2014-13", "2014-02-30", "2014-06-01T24:00", "2014-06-01T10:15:30.1234567890", "2014-06-01T10:15+19:00", "20140601")) {
+            try {
+                Jsr310Extensions.parse(clock, s);
+                fail(s);
+            } catch (DateTimeParseException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void zoneRegistry() throws Exception {
+        ZoneId paris = ZoneRegistry.of("Europe/Paris");
+        assertSame(paris, ZoneRegistry.of("Europe/Paris"));
+        int index = ZoneRegistry.indexOf(paris);
+        assertSame(paris, ZoneRegistry.get(index));
+        assertEquals(index, ZoneRegistry.indexOf(ZoneId.of("Europe/Paris")));
+        assertSame(paris.getRules(), ZoneRegistry.getRules(index));
+        assertEquals(ZoneRegistry.indexOf("+02:00"), ZoneRegistry.indexOf("+2"));
+        int size = ZoneRegistry.size();
+        assertSame(ZoneRegistry.of("+02:00"), ZoneRegistry.of("+02"));
+        assertEquals(size, ZoneRegistry.size());
+        // offsets coming from input cannot grow the registry without limit
+        for (int seconds = 1; seconds < 3600; seconds++) {
+            ZoneOffset offset = ZoneOffset.ofTotalSeconds(seconds);
+            assertEquals(offset, ZoneRegistry.of(offset.getId()));
+        }
+        assertTrue(ZoneRegistry.size() <= size + 3);
+        try {
+            ZoneRegistry.indexOf("+00:00:10");
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        assertTrue(ZoneRegistry.getLookupCount() > ZoneRegistry.getMissCount());
+    }
+
+    @Test
+    public void zoneOffsetResolver() throws Exception {
+        for (String id : Arrays.asList("Europe/Paris", "America/Montreal", "Australia/Lord_Howe", "UTC", "+05:30")) {
+            ZoneId zone = ZoneId.of(id);
+            ZoneOffsetResolver resolver = ZoneOffsetResolver.of(zone, 2000, 2030);
+            Random random = new Random(4);
+            for (int i = 0; i < 20_000; i++) {
+                long millis = 946_684_800_000L + (long) (random.nextDouble() * 40 * 365 * 86_400_000L);
+                if (i % 2 == 0) millis -= millis % 1_800_000L;
+                ZonedDateTime dt = Instant.ofEpochMilli(millis).atZone(zone);
+                assertEquals(dt.getOffset(), resolver.getOffset(millis));
+                assertEquals(dt.toLocalDate().toEpochDay(), resolver.getLocalEpochDay(millis));
+                assertEquals(dt.getHour() * 60 + dt.getMinute(), resolver.getLocalMinuteOfDay(millis));
+                assertEquals(dt.getDayOfWeek().getValue(), resolver.getLocalDayOfWeek(millis));
+                long local = dt.toLocalDateTime().toEpochSecond(ZoneOffset.UTC) * 1000 + millis % 1000;
+                assertEquals(dt.toLocalDateTime().atZone(zone).toInstant().toEpochMilli(), resolver.toEpochMilli(local));
+                // arbitrary local time, possibly in a gap or an overlap
+                LocalDateTime ldt = LocalDateTime.ofEpochSecond(millis / 1000, 0, ZoneOffset.UTC);
+                assertEquals(ldt.atZone(zone).toInstant().toEpochMilli(), resolver.toEpochMilli(millis - millis % 1000));
+            }
+        }
+    }
+
+    @Test
+    public void epochMillis() throws Exception {
+        for (String id : Arrays.asList("Europe/Paris", "America/Montreal", "America/Sao_Paulo")) {
+            ZoneId zone = ZoneId.of(id);
+            int index = ZoneRegistry.indexOf(zone);
+            Random random = new Random(5);
+            for (int i = 0; i < 20_000; i++) {
+                long millis = 946_684_800_000L + (long) (random.nextDouble() * 30 * 365 * 86_400_000L);
+                if (i % 2 == 0) millis -= millis % 900_000L;
+                ZonedDateTime dt = Instant.ofEpochMilli(millis).atZone(zone);
+                int h = random.nextInt(24), m = random.nextInt(60), step = i % 3 == 0 ? 15 : 20;
+                DayOfWeek day = DayOfWeek.of(1 + random.nextInt(7));
+                assertEquals(Jsr310Extensions.atStartOfDay(dt).toInstant().toEpochMilli(), EpochMillis.atStartOfDay(millis, index));
+                assertEquals(Jsr310Extensions.atStartOfWeek(dt).toInstant().toEpochMilli(), EpochMillis.atStartOfWeek(millis, index));
+                assertEquals(Jsr310Extensions.at(dt, h, m).toInstant().toEpochMilli(), EpochMillis.at(millis, index, h, m));
+                assertEquals(Jsr310Extensions.roundDownMinutes(dt, step).toInstant().toEpochMilli(), EpochMillis.roundDownMinutes(millis, index, step));
+                assertEquals(Jsr310Extensions.roundUpMinutes(dt, step).toInstant().toEpochMilli(), EpochMillis.roundUpMinutes(millis, index, step));
+                assertEquals(dt.plusDays((day.getValue() - dt.getDayOfWeek().getValue() + 7) % 7).toInstant().toEpochMilli(), EpochMillis.next(millis, index, day));
+                assertEquals(dt.getDayOfWeek().getValue(), EpochMillis.getDayOfWeek(millis, index));
+            }
+        }
+    }
+
+    @Test
+    public void weeklyRecurrence() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        WeeklyRecurrence rule = WeeklyRecurrence.of(zone, LocalTime.of(2, 30), DayOfWeek.TUESDAY, DayOfWeek.SUNDAY);
+        LocalDate from = LocalDate.of(2014, 1, 1);
+        List<ZonedDateTime> expected = new ArrayList<>();
+        for (LocalDate d = from; d.isBefore(from.plusWeeks(52)); d = d.plusDays(1)) {
+            if (rule.occursOn(d.getDayOfWeek())) expected.add(ZonedDateTime.of(d, LocalTime.of(2, 30), zone));
+        }
+        assertEquals(104, expected.size());
+        assertEquals(expected, rule.occurrences(from, 52).collect(Collectors.toList()));
+        assertEquals(expected, rule.occurrences(from, 52).parallel().collect(Collectors.toList()));
+        // 2014-03-30 (Sunday) 02:30 does not exist: moved to 03:30
+        assertEquals(ZonedDateTime.of(2014, 3, 30, 3, 30, 0, 0, zone), rule.next(ZonedDateTime.of(2014, 3, 26, 0, 0, 0, 0, zone)));
+        assertEquals(expected.subList(3, 13), rule.occurrences(expected.get(2).plusSeconds(1)).limit(10).collect(Collectors.toList()));
+        assertEquals(expected.get(5), rule.next(expected.get(5)));
+    }
+
+    @Test
+    public void dayOfWeekAndMonthSets() throws Exception {
+        assertEquals(Arrays.asList(Month.NOVEMBER, Month.DECEMBER, Month.JANUARY, Month.FEBRUARY), Jsr310Extensions.to(Month.NOVEMBER, Month.FEBRUARY));
+        for (DayOfWeek start : DayOfWeek.values()) {
+            for (DayOfWeek end : DayOfWeek.values()) {
+                assertEquals(new HashSet<>(Jsr310Extensions.to(start, end)), Jsr310Extensions.toSet(start, end));
+            }
+        }
+        for (Month start : Month.values()) {
+            for (Month end : Month.values()) {
+                assertEquals(new HashSet<>(Jsr310Extensions.to(start, end)), Jsr310Extensions.toSet(start, end));
+            }
+        }
+        DayOfWeekSet weekend = DayOfWeekSet.of(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY);
+        assertSame(weekend, Jsr310Extensions.toSet(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY));
+        assertEquals(DayOfWeekSet.range(DayOfWeek.MONDAY, DayOfWeek.FRIDAY), weekend.complement());
+        assertSame(DayOfWeekSet.ALL, weekend.union(weekend.complement()));
+        assertTrue(weekend.contains(DayOfWeek.SUNDAY));
+        assertFalse(weekend.contains((Object) Month.MAY));
+        assertEquals(DayOfWeek.SATURDAY, weekend.next(DayOfWeek.TUESDAY));
+        assertEquals(DayOfWeek.SATURDAY, weekend.next(DayOfWeek.SATURDAY));
+        assertEquals(MonthSet.of(Month.DECEMBER, Month.JANUARY), MonthSet.range(Month.DECEMBER, Month.FEBRUARY).minus(MonthSet.of(Month.FEBRUARY)));
+        assertEquals(Month.JANUARY, MonthSet.of(Month.JANUARY, Month.MARCH).next(Month.APRIL));
+    }
+
+    @Test
+    public void weeklySchedule() throws Exception {
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        WeeklySchedule schedule = WeeklySchedule.builder(zone)
+            .open(DayOfWeekSet.range(DayOfWeek.TUESDAY, DayOfWeek.SATURDAY), LocalTime.of(12, 0), LocalTime.of(14, 30))
+            .open(DayOfWeekSet.range(DayOfWeek.FRIDAY, DayOfWeek.SUNDAY), LocalTime.of(19, 0), LocalTime.of(1, 0))
+            .build();
+        // Sunday 2014-03-30, DST starts at 02:00
+        ZonedDateTime sunday = ZonedDateTime.of(2014, 3, 30, 0, 30, 0, 0, zone);
+        assertTrue(schedule.isOpen(sunday));
+        assertFalse(schedule.isOpen(sunday.plusMinutes(30)));
+        assertEquals(ZonedDateTime.of(2014, 3, 30, 19, 0, 0, 0, zone), schedule.nextOpening(sunday));
+        assertEquals(ZonedDateTime.of(2014, 3, 30, 1, 0, 0, 0, zone), schedule.nextClosing(sunday));
+        assertEquals(ZonedDateTime.of(2014, 4, 1, 12, 0, 0, 0, zone), schedule.nextOpening(ZonedDateTime.of(2014, 3, 30, 19, 0, 1, 0, zone)));
+        ZonedDateTime monday = ZonedDateTime.of(2014, 3, 31, 0, 0, 0, 0, zone);
+        assertEquals(Arrays.asList(
+            ZonedInterval.of(sunday.minusMinutes(30), sunday.plusMinutes(30)),
+            ZonedInterval.of(sunday.withHour(19).withMinute(0), monday.withHour(1)),
+            ZonedInterval.of(monday.plusDays(1).withHour(12), monday.plusDays(1).withHour(14).withMinute(30))),
+            schedule.openIntervals(ZonedInterval.of(sunday.minusMinutes(30), monday.plusDays(2))).collect(Collectors.toList()));
+        WeeklySchedule always = WeeklySchedule.builder(zone).open(DayOfWeekSet.ALL, LocalTime.MIDNIGHT, LocalTime.MIDNIGHT).build();
+        assertEquals(WeeklySchedule.NEVER, always.nextClosing(0));
+        assertEquals(1, always.openIntervals(ZonedInterval.of(sunday, monday.plusDays(10))).count());
+        assertNull(WeeklySchedule.builder(zone).build().nextOpening(sunday));
+        // opening and closing within the DST gap (02:00 to 03:00 does not exist) happen at the transition
+        ZonedDateTime transition = ZonedDateTime.of(2014, 3, 30, 3, 0, 0, 0, zone);
+        WeeklySchedule late = WeeklySchedule.builder(zone).open(DayOfWeek.SUNDAY, LocalTime.of(2, 30), LocalTime.of(5, 0)).build();
+        assertTrue(late.isOpen(transition));
+        assertEquals(transition, late.nextOpening(sunday));
+        assertEquals(Collections.singletonList(ZonedInterval.of(transition, transition.withHour(5))),
+            late.openIntervals(ZonedInterval.of(sunday, monday)).collect(Collectors.toList()));
+        WeeklySchedule early = WeeklySchedule.builder(zone).open(DayOfWeek.SUNDAY, LocalTime.of(1, 0), LocalTime.of(2, 30)).build();
+        assertFalse(early.isOpen(transition.plusMinutes(10)));
+        assertEquals(transition, early.nextClosing(sunday));
+        assertEquals(Collections.singletonList(ZonedInterval.of(sunday.withMinute(0).plusHours(1), transition)),
+            early.openIntervals(ZonedInterval.of(sunday, monday)).collect(Collectors.toList()));
+        WeeklySchedule never = WeeklySchedule.builder(zone).open(DayOfWeek.SUNDAY, LocalTime.of(2, 10), LocalTime.of(2, 40)).build();
+        assertEquals(0, never.openIntervals(ZonedInterval.of(sunday, monday)).count());
+    }
+
+    @Test
+    public void epochDayCalendar() throws Exception {
+        EpochDayCalendar closures = new EpochDayCalendar();
+        LocalDate christmas = LocalDate.of(2014, 12, 25);
+        closures.mark(christmas);
+        closures.mark(LocalDate.of(2014, 12, 20), LocalDate.of(2015, 1, 3));
+        closures.clear(LocalDate.of(2014, 12, 31));
+        closures.mark(LocalDate.of(1960, 1, 1));
+        assertTrue(closures.isMarked(christmas));
+        assertFalse(closures.isMarked(LocalDate.of(2014, 12, 31)));
+        assertEquals(LocalDate.of(2014, 12, 31), closures.nextUnmarked(christmas));
+        assertEquals(LocalDate.of(2015, 1, 3), closures.nextUnmarked(LocalDate.of(2015, 1, 1)));
+        assertEquals(LocalDate.of(2014, 12, 20), closures.nextMarked(LocalDate.of(1960, 1, 2)));
+        assertNull(closures.nextMarked(LocalDate.of(2015, 1, 3)));
+        assertEquals(14, closures.cardinality());
+        assertEquals("[1960-01-01, 2014-12-20..2014-12-30, 2015-01-01..2015-01-02]", closures.toString());
+        EpochDayCalendar big = new EpochDayCalendar();
+        big.markRange(-10_000, 10_000);
+        assertEquals(20_000, big.cardinality());
+        assertEquals(10_000, big.nextUnmarked(-10_000));
+        big.clearRange(-5000, 5000);
+        assertEquals(-5000, big.nextUnmarked(-10_000));
+        assertEquals(5000, big.nextMarked(-5000));
+
+        Kryo kryo = new Kryo();
+        KryoJsr310.addJsr310Serializers(kryo);
+        Output output = new Output(1024, -1);
+        kryo.writeObject(output, closures);
+        assertEquals(closures, kryo.readObject(new Input(output.toBytes()), EpochDayCalendar.class));
+        assertEquals(closures, kryo.copy(closures));
+    }
+
+    @Test
+    public void delegatingClockIsThreadScoped() throws Exception {
+        Clock system = Clock.fixed(Instant.ofEpochMilli(1000), ZoneId.of("UTC"));
+        Clock fixed = Clock.fixed(Instant.ofEpochMilli(2000), ZoneId.of("Europe/Paris"));
+        DelegatingClock clock = new DelegatingClock(system);
+        Clock paris = clock.withZone(ZoneId.of("Europe/Paris"));
+        CountDownLatch overridden = new CountDownLatch(1);
+        CountDownLatch checked = new CountDownLatch(1);
+        Thread other = new Thread(() -> clock.runWithClock(Clock.fixed(Instant.ofEpochMilli(3000), ZoneId.of("UTC")), () -> {
+            overridden.countDown();
+            try {
+                checked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        other.start();
+        overridden.await();
+        assertEquals(1000, clock.millis());
+        long nested = clock.runWithClock(fixed, () -> clock.runWithClock(system, clock::millis) + paris.millis());
+        assertEquals(3000, nested);
+        assertEquals(ZoneId.of("UTC"), clock.getZone());
+        checked.countDown();
+        other.join();
+        assertEquals(1000, clock.instant().toEpochMilli());
+    }
+
+    @Test
+    public void fixedClockResolvesOnce() {
+        FixedClock clock = new FixedClock();
+        clock.setZone(ZoneId.of("Europe/Paris"));
+        clock.setYear(2014);
+        clock.setMonth(1);
+        clock.setDay(31);
+        clock.setHour(10);
+        clock.setMin(30);
+        clock.setSec(0);
+        assertSame(clock.instant(), clock.instant());
+        assertEquals(Instant.parse("2014-01-31T09:30:00Z"), clock.instant());
+        clock.setMonth(2);
+        clock.setDay(15);
+        assertEquals(Instant.parse("2014-02-15T09:30:00Z"), clock.instant());
+        Clock montreal = clock.withZone(ZoneId.of("America/Montreal"));
+        assertEquals(Instant.parse("2014-02-15T15:30:00Z"), montreal.instant());
+        assertSame(montreal.instant(), montreal.instant());
+        assertEquals(Instant.parse("2014-02-15T09:30:00Z"), clock.instant());
+    }
+
+    @Test
+    public void cachedClockTicks() throws Exception {
+        AtomicLong source = new AtomicLong(1000);
+        Clock clock = new Clock() {
+            @Override
+            public ZoneId getZone() {
+                return ZoneId.of("UTC");
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Instant instant() {
+                return Instant.ofEpochMilli(source.get());
+            }
+        };
+        CachedClock paris;
+        try (CachedClock cached = CachedClock.start(clock, Duration.ofMillis(1))) {
+            paris = cached.withZone(ZoneId.of("Europe/Paris"));
+            assertSame(paris, cached.withZone(ZoneId.of("Europe/Paris")));
+            assertEquals(1000, cached.millis());
+            assertSame(paris.now(), Jsr310Extensions.getNow(paris));
+            source.set(5000);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (paris.now().toInstant().toEpochMilli() != 5000 && System.currentTimeMillis() < deadline) Thread.sleep(1);
+            assertEquals(5000, cached.instant().toEpochMilli());
+            assertEquals(ZoneId.of("Europe/Paris"), paris.now().getZone());
+        }
+        assertTrue(paris.isClosed());
+        source.set(9000);
+        assertEquals(9000, paris.now().toInstant().toEpochMilli());
+        assertEquals(9000, paris.withZone(ZoneId.of("Asia/Tokyo")).now().toInstant().toEpochMilli());
+    }
+
+    @Test
+    public void virtualClockRunsTasksInOrder() {
+        VirtualClock clock = new VirtualClock(ZonedDateTime.of(2014, 3, 29, 0, 0, 0, 0, ZoneId.of("Europe/Paris")));
+        List<String> log = new ArrayList<>();
+        clock.schedule(Duration.ofHours(20), () -> log.add("dinner@" + ZonedDateTime.now(clock).getHour()));
+        clock.schedule(ZonedDateTime.of(2014, 3, 29, 12, 0, 0, 0, ZoneId.of("Europe/Paris")), () -> {
+            log.add("lunch@" + ZonedDateTime.now(clock).getHour());
+            clock.schedule(Duration.ofHours(1), () -> log.add("coffee@" + ZonedDateTime.now(clock).getHour()));
+        });
+        VirtualClock.Task cancelled = clock.schedule(Duration.ofHours(12), () -> log.add("cancelled"));
+        assertTrue(cancelled.cancel());
+        assertEquals(2, clock.getPendingCount());
+        clock.advance(Duration.ofHours(14));
+        assertEquals(Arrays.asList("lunch@12", "coffee@13"), log);
+        assertEquals(14, ZonedDateTime.now(clock).getHour());
+        assertEquals(ZonedDateTime.of(2014, 3, 29, 19, 0, 0, 0, ZoneId.of("UTC")), clock.withZone(ZoneId.of("UTC")).getNextTime());
+        assertEquals(1, clock.runAll());
+        assertEquals(Arrays.asList("lunch@12", "coffee@13", "dinner@20"), log);
+
+        AtomicInteger concurrent = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            clock.schedule(Duration.ofMinutes(i % 10), concurrent::incrementAndGet);
+        }
+        clock.advance(Duration.ofDays(1), ForkJoinPool.commonPool());
+        assertEquals(100, concurrent.get());
+        assertEquals(0, clock.getPendingCount());
+        assertFalse(cancelled.isDone());
+
+        // a failing task does not prevent the other tasks due at the same instant from running
+        clock.schedule(Duration.ofMinutes(1), () -> {
+            throw new IllegalStateException("boom");
+        });
+        VirtualClock.Task after = clock.schedule(Duration.ofMinutes(1), () -> log.add("after"));
+        try {
+            clock.runAll();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertTrue(after.isDone());
+        assertEquals("after", log.get(log.size() - 1));
+        assertEquals(0, clock.getPendingCount());
+
+        // checked exceptions thrown sneakily are not lost
+        clock.schedule(Duration.ofMinutes(1), () -> Jsr310Test.<RuntimeException>sneakyThrow(new IOException("io")));
+        try {
+            clock.runAll();
+            fail();
+        } catch (UndeclaredThrowableException e) {
+            assertEquals("io", e.getCause().getMessage());
+        }
+
+        // an executor rejecting the tasks does not leave the batch waiting forever
+        clock.schedule(Duration.ofMinutes(1), () -> log.add("rejected"));
+        clock.schedule(Duration.ofMinutes(1), () -> log.add("rejected"));
+        try {
+            clock.runAll(task -> {
+                throw new RejectedExecutionException("full");
+            });
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertEquals(1, e.getSuppressed().length);
+        }
+        assertFalse(log.contains("rejected"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> void sneakyThrow(Throwable e) throws T {
+        throw (T) e;
+    }
+
+    @Test
+    public void timingWheelExpiresInOrder() {
+        VirtualClock clock = new VirtualClock(ZonedDateTime.of(2014, 3, 29, 0, 0, 0, 0, ZoneId.of("Europe/Paris")));
+        long start = clock.millis();
+        List<Long> fired = new ArrayList<>();
+        TimingWheel wheel = new TimingWheel(clock, Duration.ofMillis(10), Runnable::run);
+        Random random = new Random(7);
+        long[] deadlines = new long[5000];
+        List<TimingWheel.Timeout> timeouts = new ArrayList<>();
+        for (int i = 0; i < deadlines.length; i++) {
+            deadlines[i] = start + (long) (random.nextDouble() * Duration.ofDays(40).toMillis());
+            long deadline = deadlines[i];
+            timeouts.add(wheel.schedule(ZonedDateTime.ofInstant(Instant.ofEpochMilli(deadline), ZoneId.of("UTC")), () -> {
+                assertTrue(clock.millis() >= deadline);
+                fired.add(deadline);
+            }));
+        }
+        ZonedInterval booking = ZonedInterval.of(LocalDateTime.of(2014, 3, 29, 19, 0).atZone(clock.getZone()), LocalDateTime.of(2014, 3, 29, 21, 0).atZone(clock.getZone()));
+        wheel.schedule(booking, () -> fired.add(-1L));
+        int cancelled = 0;
+        for (int i = 0; i < timeouts.size(); i += 3, cancelled++) {
+            assertTrue(timeouts.get(i).cancel());
+        }
+        assertFalse(timeouts.get(0).cancel());
+        assertEquals(deadlines.length - cancelled + 1, wheel.size());
+        wheel.advance();
+        assertTrue(fired.isEmpty());
+        clock.advanceTo(booking.getEnd());
+        wheel.advance();
+        assertTrue(fired.contains(-1L));
+        while (wheel.size() > 0) {
+            clock.advance(Duration.ofMillis(random.nextInt(3_600_000 * 12)));
+            long now = clock.millis();
+            wheel.advance();
+            for (int i = 0; i < deadlines.length; i++) {
+                if (i % 3 != 0 && deadlines[i] <= now) assertTrue(timeouts.get(i).isExpired());
+            }
+        }
+        assertEquals(deadlines.length - cancelled + 1, fired.size());
+        assertTrue(timeouts.get(0).isCancelled());
+        wheel.schedule(start, () -> fired.add(0L));
+        assertEquals(0L, (long) fired.get(fired.size() - 1));
+        assertSame(TimingWheel.defaultExecutor(), TimingWheel.defaultExecutor());
+    }
+
+    @Test
+    public void timingWheelFailures() throws Exception {
+        VirtualClock clock = new VirtualClock(ZonedDateTime.of(2014, 3, 29, 0, 0, 0, 0, ZoneId.of("Europe/Paris")));
+        List<String> fired = new ArrayList<>();
+        TimingWheel wheel = new TimingWheel(clock, Duration.ofMillis(10), Runnable::run);
+        wheel.schedule(Duration.ofMinutes(1), () -> {
+            throw new IllegalStateException("boom");
+        });
+        wheel.schedule(Duration.ofMinutes(1), () -> fired.add("after"));
+        clock.advance(Duration.ofMinutes(1));
+        try {
+            wheel.advance();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals(Arrays.asList("after"), fired);
+        assertEquals(0, wheel.size());
+
+        // the ticker thread reports failures and keeps ticking
+        Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+        List<Throwable> reported = Collections.synchronizedList(new ArrayList<>());
+        Thread.setDefaultUncaughtExceptionHandler((t, e) -> reported.add(e));
+        try (TimingWheel ticking = new TimingWheel(Clock.systemUTC(), Duration.ofMillis(1), Runnable::run)) {
+            CountDownLatch later = new CountDownLatch(1);
+            ticking.schedule(Duration.ofMillis(5), () -> {
+                throw new IllegalStateException("boom");
+            });
+            ticking.schedule(Duration.ofMillis(50), later::countDown);
+            ticking.start();
+            assertTrue(later.await(10, TimeUnit.SECONDS));
+            assertEquals(1, reported.size());
+            assertEquals("boom", reported.get(0).getMessage());
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(handler);
+        }
+    }
+
+    @Test
+    public void kryoZoneDictionary() {
+        ArrayList<Object> values = new ArrayList<>();
+        for (String zone : Arrays.asList("Europe/Paris", "America/Montreal", "Europe/Paris", "Asia/Tokyo", "America/Montreal")) {
+            ZonedDateTime start = ZonedDateTime.of(2014, 3, 29, 19, 0, 0, 0, ZoneId.of(zone));
+            values.add(start);
+            values.add(ZonedInterval.of(start, start.plusHours(2)));
+            values.add(CompactZonedInterval.of(start, start.plusHours(2)));
+        }
+        Kryo strings = new Kryo();
+        KryoJsr310.addJsr310Serializers(strings);
+        Output plain = new Output(4096);
+        strings.writeObject(plain, values);
+
+        Kryo dictionary = new Kryo();
+        KryoJsr310.addJsr310Serializers(dictionary, ZoneIdEncoding.dictionary("Europe/Paris"));
+        Output encoded = new Output(4096);
+        dictionary.writeObject(encoded, values);
+        assertTrue(encoded.position() < plain.position());
+        dictionary.writeObject(encoded, values);
+
+        Input input = new Input(encoded.toBytes());
+        assertEquals(values, dictionary.readObject(input, ArrayList.class));
+        @SuppressWarnings("unchecked") List<Object> read = dictionary.readObject(input, ArrayList.class);
+        assertEquals(values, read);
+        assertSame(ZoneRegistry.of("Asia/Tokyo"), ((ZonedDateTime) read.get(9)).getZone());
+
+        // corrupted indexes: not defined yet, and overflowing an int
+        ZoneIdEncoding encoding = ZoneIdEncoding.dictionary("Europe/Paris");
+        for (int index : new int[]{2, -1}) {
+            Output corrupted = new Output(16);
+            corrupted.writeInt(index, true);
+            try {
+                encoding.read(new Kryo(), new Input(corrupted.toBytes()));
+                fail();
+            } catch (KryoException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void kryoPeriod() {
+        Kryo kryo = new Kryo();
+        KryoJsr310.addJsr310Serializers(kryo);
+        Kryo old = new Kryo();
+        old.addDefaultSerializer(Period.class, new Serializer<Period>() {
+            @Override
+            public void write(Kryo kryo, Output output, Period object) {
+                output.writeString(object.toString());
+            }
+
+            @Override
+            public Period read(Kryo kryo, Input input, Class<Period> type) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        for (Period period : Arrays.asList(Period.ZERO, Period.ofDays(1), Period.ofWeeks(2), Period.ofDays(217), Period.ofMonths(6), Period.ofYears(1),
+            Period.ofDays(-1), Period.ofDays(32), Period.ofMonths(40), Period.of(1, 2, 3), Period.of(-5, Integer.MAX_VALUE, Integer.MIN_VALUE))) {
+            Output output = new Output(32);
+            kryo.writeObject(output, period);
+            assertEquals(period, kryo.readObject(new Input(output.toBytes()), Period.class));
+            Output legacy = new Output(64);
+            old.writeObject(legacy, period);
+            assertEquals(period, kryo.readObject(new Input(legacy.toBytes()), Period.class));
+        }
+        Output output = new Output(32);
+        new PeriodSerializer().write(kryo, output, Period.ofMonths(3));
+        assertEquals(1, output.position());
+    }
+
+    @Test
+    public void kryoRegisteredSerializers() {
+        ZonedDateTime dt = ZonedDateTime.of(2014, 3, 29, 19, 0, 0, 123456789, ZoneId.of("Europe/Paris"));
+        List<Object> values = Arrays.asList(dt, ZonedInterval.of(dt, dt.plusHours(2)), dt.toInstant(), dt.toLocalDateTime(), dt.toOffsetDateTime(),
+            dt.getZone(), dt.getOffset(), YearMonth.from(dt), Year.from(dt), dt.getDayOfWeek(), dt.getMonth(), Period.ofWeeks(2),
+            // beyond the range of Duration.toNanos()
+            Duration.ofDays(365L * 1000).plusNanos(1), Duration.ofSeconds(Long.MIN_VALUE));
+        Kryo kryo = new Kryo();
+        kryo.setRegistrationRequired(true);
+        KryoJsr310.registerJsr310Serializers(kryo, 20, ZoneIdEncoding.dictionary("Europe/Paris"), true);
+        assertEquals(23, kryo.getRegistration(ZonedDateTime.class).getId());
+        for (Object value : values) {
+            Output output = new Output(64);
+            kryo.writeClassAndObject(output, value);
+            assertEquals(value, kryo.readClassAndObject(new Input(output.toBytes())));
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013 Guestful (info@guestful.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.guestful.jsr310.kryo;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.guestful.jsr310.ZonedInterval;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Size and throughput of a graph of zoned values serialized with each {@link ZoneIdEncoding}.
+ * <p>
+ * Not a unit test: run its {@link #main(String[])} method, i.e. from the IDE.
+ *
+ * @author Mathieu Carbou (mathieu.carbou@gmail.com)
+ */
+public final class ZoneIdEncodingBenchmark {
+
+    private static final String[] ZONES = {"America/Montreal", "Europe/Paris", "America/Toronto", "America/New_York"};
+    private static final int ROUNDS = 2000;
+
+    public static void main(String[] args) {
+        ArrayList<Object> values = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            ZoneId zone = ZoneId.of(ZONES[random.nextInt(ZONES.length)]);
+            ZonedDateTime start = Instant.ofEpochMilli(1_400_000_000_000L + random.nextInt(1 << 30)).atZone(zone);
+            values.add(i % 2 == 0 ? start : ZonedInterval.of(start, start.plusHours(2)));
+        }
+        run("string", ZoneIdEncoding.string(), values);
+        run("dictionary", ZoneIdEncoding.dictionary(), values);
+        run("stable", ZoneIdEncoding.dictionary(ZONES), values);
+    }
+
+    private static void run(String name, ZoneIdEncoding zones, ArrayList<Object> values) {
+        Kryo kryo = new Kryo();
+        KryoJsr310.addJsr310Serializers(kryo, zones);
+        Output output = new Output(1 << 20);
+        kryo.writeObject(output, values);
+        byte[] bytes = output.toBytes();
+        long nanos = 0;
+        // the last of 3 rounds is measured, after warm-up
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                output.clear();
+                kryo.writeObject(output, values);
+                kryo.readObject(new Input(bytes), ArrayList.class);
+            }
+            nanos = System.nanoTime() - start;
+        }
+        System.out.printf("%-10s %6d bytes, %.0f ns per value (write + read)%n", name, bytes.length, nanos / (double) ROUNDS / values.size());
+    }
+
+}